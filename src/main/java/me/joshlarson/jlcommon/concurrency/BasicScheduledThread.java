@@ -24,25 +24,61 @@
 package me.joshlarson.jlcommon.concurrency;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
 
 public class BasicScheduledThread {
 	
 	private final ScheduledThreadPool threadPool;
 	private final Runnable runnable;
+	private volatile ScheduledTask task;
 	
 	public BasicScheduledThread(@NotNull String name, @NotNull Runnable runnable) {
 		this.threadPool = new ScheduledThreadPool(1, name);
 		this.runnable = runnable;
+		this.task = null;
 	}
 	
 	public void startWithFixedRate(long initialDelay, long periodicDelay) {
-		threadPool.start();
-		threadPool.executeWithFixedRate(initialDelay, periodicDelay, runnable);
+		startWithFixedRate(initialDelay, periodicDelay, TimeUnit.MILLISECONDS);
 	}
 	
 	public void startWithFixedDelay(long initialDelay, long periodicDelay) {
+		startWithFixedDelay(initialDelay, periodicDelay, TimeUnit.MILLISECONDS);
+	}
+	
+	public void startWithFixedRate(long initialDelay, long periodicDelay, @NotNull TimeUnit unit) {
+		threadPool.start();
+		task = threadPool.executeWithFixedRate(initialDelay, periodicDelay, unit, runnable);
+	}
+	
+	public void startWithFixedDelay(long initialDelay, long periodicDelay, @NotNull TimeUnit unit) {
+		threadPool.start();
+		task = threadPool.executeWithFixedDelay(initialDelay, periodicDelay, unit, runnable);
+	}
+	
+	/**
+	 * Starts the thread at a fixed rate, parking until shortly before each deadline and then spinning for sub-millisecond precision
+	 *
+	 * @param initialDelay  the delay before the first execution
+	 * @param periodicDelay the time between the start of each execution
+	 * @param unit          the unit of initialDelay and periodicDelay
+	 */
+	public void startWithPreciseRate(long initialDelay, long periodicDelay, @NotNull TimeUnit unit) {
 		threadPool.start();
-		threadPool.executeWithFixedDelay(initialDelay, periodicDelay, runnable);
+		task = threadPool.executeWithPreciseRate(initialDelay, periodicDelay, unit, runnable);
+	}
+	
+	/**
+	 * Returns how late each execution started relative to its schedule, or null if this thread has not been started
+	 *
+	 * @return the jitter histogram
+	 */
+	@Nullable
+	public TimeHistogram getJitter() {
+		ScheduledTask task = this.task;
+		return task == null ? null : task.getJitter();
 	}
 	
 	public boolean isRunning() {
@@ -59,6 +59,10 @@ public class BasicThread {
 		threadPool.setPriority(priority);
 	}
 	
+	public void setAffinity(int ... cpus) {
+		threadPool.setAffinity(cpus);
+	}
+	
 	public void stop(boolean interrupt) {
 		threadPool.stop(interrupt);
 	}
@@ -30,6 +30,14 @@ import java.util.concurrent.locks.LockSupport;
 
 public class Delay {
 	
+	private static final long MIN_SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(10);
+	private static final long MAX_SPIN_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(2);
+	private static final long YIELD_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(20);
+	private static final TimeHistogram OVERSHOOT = new TimeHistogram();
+	
+	/** Exponentially weighted average of how late parkNanos wakes up, used to decide when to stop parking and start spinning */
+	private static volatile long averageParkOvershoot = TimeUnit.MICROSECONDS.toNanos(50);
+	
 	/**
 	 * Sleeps for the specified number of nanoseconds
 	 *
@@ -82,6 +90,105 @@ public class Delay {
 		return sleepNano(unit.toNanos(time));
 	}
 	
+	/**
+	 * Sleeps until System.nanoTime() reaches the specified deadline. Periodic loops should advance the deadline by their period each iteration, rather than sleeping for a fixed
+	 * duration, so that the time spent running each iteration does not accumulate as drift
+	 *
+	 * @param deadline the System.nanoTime() value to sleep until
+	 * @return FALSE if this thread has been interrupted, TRUE otherwise
+	 */
+	public static boolean sleepUntilNano(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remaining);
+			if (isInterrupted())
+				return false;
+		}
+		OVERSHOOT.record(-remaining);
+		return true;
+	}
+	
+	/**
+	 * Sleeps for the specified number of nanoseconds, waking up as close to the requested time as possible. The thread parks until it is within the calibrated spin threshold of the
+	 * deadline, then yields and busy-waits for the remainder. This trades CPU time for precision, and should only be used where parkNanos' overshoot is unacceptable
+	 *
+	 * @param nanos the number of nanoseconds to sleep
+	 * @return FALSE if this thread has been interrupted, TRUE otherwise
+	 */
+	public static boolean sleepPreciseNano(long nanos) {
+		return sleepUntilPreciseNano(System.nanoTime() + nanos);
+	}
+	
+	/**
+	 * Sleeps for the specified amount of time, waking up as close to the requested time as possible
+	 *
+	 * @param time the amount of time to sleep
+	 * @param unit the unit of time
+	 * @return FALSE if this thread has been interrupted, TRUE otherwise
+	 * @see #sleepPreciseNano(long)
+	 */
+	public static boolean sleepPrecise(long time, @NotNull TimeUnit unit) {
+		return sleepPreciseNano(unit.toNanos(time));
+	}
+	
+	/**
+	 * Sleeps until System.nanoTime() reaches the specified deadline, waking up as close to the deadline as possible
+	 *
+	 * @param deadline the System.nanoTime() value to sleep until
+	 * @return FALSE if this thread has been interrupted, TRUE otherwise
+	 * @see #sleepPreciseNano(long)
+	 */
+	public static boolean sleepUntilPreciseNano(long deadline) {
+		long remaining;
+		long threshold;
+		while ((remaining = deadline - System.nanoTime()) > (threshold = getSpinThresholdNanos())) {
+			long wakeup = deadline - threshold;
+			LockSupport.parkNanos(remaining - threshold);
+			if (isInterrupted())
+				return false;
+			calibrate(System.nanoTime() - wakeup);
+		}
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			if (remaining > YIELD_THRESHOLD)
+				Thread.yield();
+			else
+				Thread.onSpinWait();
+		}
+		OVERSHOOT.record(-remaining);
+		return !isInterrupted();
+	}
+	
+	/**
+	 * Returns how late the deadline-based sleeps have woken up, relative to their requested deadline
+	 *
+	 * @return the histogram of wake-up overshoot
+	 */
+	@NotNull
+	public static TimeHistogram getOvershoot() {
+		return OVERSHOOT;
+	}
+	
+	/**
+	 * Returns the remaining time at which precise sleeps stop parking and start spinning. This is calibrated from the measured overshoot of parkNanos on this machine
+	 *
+	 * @param unit the unit of time
+	 * @return the spin threshold
+	 */
+	public static long getSpinThreshold(@NotNull TimeUnit unit) {
+		return unit.convert(getSpinThresholdNanos(), TimeUnit.NANOSECONDS);
+	}
+	
+	private static long getSpinThresholdNanos() {
+		return Math.max(MIN_SPIN_THRESHOLD, Math.min(MAX_SPIN_THRESHOLD, averageParkOvershoot * 2));
+	}
+	
+	private static void calibrate(long overshoot) {
+		if (overshoot < 0)
+			return; // woke up early, most likely spuriously
+		long average = averageParkOvershoot;
+		averageParkOvershoot = average + (overshoot - average) / 8; // racy updates only lose a sample
+	}
+	
 	/**
 	 * Returns whether or not this thread has been interrupted
 	 *
@@ -0,0 +1,356 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A ScheduledExecutorService backed by a hashed timing wheel. Scheduling and cancelling are both O(1), at the cost of rounding every deadline up to the next tick. A single thread advances the wheel
+ * and hands expired tasks to a fixed pool of worker threads.
+ */
+class HashedWheelScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+	
+	private static final int MAX_TRANSFERS_PER_TICK = 100000;
+	
+	private final long tickNanos;
+	private final Bucket [] wheel;
+	private final int mask;
+	private final Queue<WheelTask<?>> pending;
+	private final Queue<WheelTask<?>> cancelled;
+	private final ExecutorService workers;
+	private final Thread tickThread;
+	private final long startTime;
+	private volatile boolean shutdown;
+	private long tick;
+	
+	public HashedWheelScheduler(int nThreads, @NotNull ThreadFactory threadFactory, long tickNanos, int ticksPerWheel) {
+		if (tickNanos <= 0)
+			throw new IllegalArgumentException("tick duration must be positive");
+		if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30))
+			throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+		int wheelSize = Integer.highestOneBit(ticksPerWheel);
+		if (wheelSize < ticksPerWheel)
+			wheelSize <<= 1;
+		this.tickNanos = tickNanos;
+		this.wheel = new Bucket[wheelSize];
+		this.mask = wheelSize - 1;
+		this.pending = new ConcurrentLinkedQueue<>();
+		this.cancelled = new ConcurrentLinkedQueue<>();
+		this.workers = Executors.newFixedThreadPool(nThreads, threadFactory);
+		this.tickThread = threadFactory.newThread(this::tickLoop);
+		this.shutdown = false;
+		this.tick = 0;
+		for (int i = 0; i < wheelSize; i++)
+			wheel[i] = new Bucket();
+		this.startTime = System.nanoTime();
+		tickThread.start();
+	}
+	
+	@NotNull
+	@Override
+	public ScheduledFuture<?> schedule(@NotNull Runnable command, long delay, @NotNull TimeUnit unit) {
+		return schedule(new WheelTask<>(Executors.callable(command), triggerTime(delay, unit), 0));
+	}
+	
+	@NotNull
+	@Override
+	public <V> ScheduledFuture<V> schedule(@NotNull Callable<V> callable, long delay, @NotNull TimeUnit unit) {
+		return schedule(new WheelTask<>(callable, triggerTime(delay, unit), 0));
+	}
+	
+	@NotNull
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(@NotNull Runnable command, long initialDelay, long period, @NotNull TimeUnit unit) {
+		if (period <= 0)
+			throw new IllegalArgumentException("period must be positive");
+		return schedule(new WheelTask<>(Executors.callable(command), triggerTime(initialDelay, unit), unit.toNanos(period)));
+	}
+	
+	@NotNull
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(@NotNull Runnable command, long initialDelay, long delay, @NotNull TimeUnit unit) {
+		if (delay <= 0)
+			throw new IllegalArgumentException("delay must be positive");
+		return schedule(new WheelTask<>(Executors.callable(command), triggerTime(initialDelay, unit), -unit.toNanos(delay)));
+	}
+	
+	@Override
+	public void execute(@NotNull Runnable command) {
+		if (shutdown)
+			throw new RejectedExecutionException("Scheduler has been shut down");
+		workers.execute(command);
+	}
+	
+	/**
+	 * Stops the timer and cancels every task that has not yet been handed to a worker. Tasks that are already running are allowed to finish. Unlike ScheduledThreadPoolExecutor,
+	 * delayed tasks are not run after shutdown.
+	 */
+	@Override
+	public void shutdown() {
+		shutdown = true;
+		LockSupport.unpark(tickThread);
+		workers.shutdown();
+	}
+	
+	/**
+	 * Stops the timer, cancels every task that has not yet been handed to a worker, and interrupts the running tasks
+	 *
+	 * @return the tasks that were handed to a worker but never started
+	 */
+	@NotNull
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown = true;
+		LockSupport.unpark(tickThread);
+		return workers.shutdownNow();
+	}
+	
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+	
+	@Override
+	public boolean isTerminated() {
+		return shutdown && !tickThread.isAlive() && workers.isTerminated();
+	}
+	
+	@Override
+	public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		tickThread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+		if (tickThread.isAlive())
+			return false;
+		return workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+	}
+	
+	private long triggerTime(long delay, @NotNull TimeUnit unit) {
+		return System.nanoTime() + unit.toNanos(Math.max(0, delay));
+	}
+	
+	/**
+	 * Queues the task for the tick thread. Adding is guarded by the same lock as the final drain in {@link #tickLoop()}, so a task is either rejected or seen by the tick thread
+	 */
+	@NotNull
+	private <V> WheelTask<V> schedule(@NotNull WheelTask<V> task) {
+		synchronized (pending) {
+			if (shutdown)
+				throw new RejectedExecutionException("Scheduler has been shut down");
+			pending.add(task);
+		}
+		return task;
+	}
+	
+	private void tickLoop() {
+		try {
+			while (waitForNextTick()) {
+				processCancelled();
+				transferPending();
+				wheel[(int) (tick & mask)].expire();
+				tick++;
+			}
+		} finally {
+			for (Bucket bucket : wheel)
+				bucket.cancelAll();
+			synchronized (pending) {
+				shutdown = true;
+				WheelTask<?> task;
+				while ((task = pending.poll()) != null)
+					task.cancel(false);
+			}
+			cancelled.clear();
+		}
+	}
+	
+	private boolean waitForNextTick() {
+		long deadline = startTime + tickNanos * (tick + 1);
+		while (!shutdown) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0)
+				return true;
+			LockSupport.parkNanos(this, remaining);
+		}
+		return false;
+	}
+	
+	private void processCancelled() {
+		WheelTask<?> task;
+		while ((task = cancelled.poll()) != null) {
+			if (task.bucket != null)
+				task.bucket.remove(task);
+		}
+	}
+	
+	private void transferPending() {
+		for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+			WheelTask<?> task = pending.poll();
+			if (task == null)
+				break;
+			if (task.isCancelled())
+				continue;
+			long expirationTick = (task.deadline - startTime) / tickNanos;
+			task.remainingRounds = (expirationTick - tick) / wheel.length;
+			wheel[(int) (Math.max(expirationTick, tick) & mask)].add(task);
+		}
+	}
+	
+	private void dispatch(@NotNull WheelTask<?> task) {
+		try {
+			workers.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.cancel(false);
+		}
+	}
+	
+	/**
+	 * A doubly linked list of tasks that is only ever touched by the tick thread
+	 */
+	private class Bucket {
+		
+		private WheelTask<?> head = null;
+		private WheelTask<?> tail = null;
+		
+		public void add(@NotNull WheelTask<?> task) {
+			task.bucket = this;
+			task.prev = tail;
+			task.next = null;
+			if (tail == null)
+				head = task;
+			else
+				tail.next = task;
+			tail = task;
+		}
+		
+		public void remove(@NotNull WheelTask<?> task) {
+			if (task.prev == null)
+				head = task.next;
+			else
+				task.prev.next = task.next;
+			if (task.next == null)
+				tail = task.prev;
+			else
+				task.next.prev = task.prev;
+			task.bucket = null;
+			task.prev = null;
+			task.next = null;
+		}
+		
+		public void expire() {
+			WheelTask<?> task = head;
+			while (task != null) {
+				WheelTask<?> next = task.next;
+				if (task.remainingRounds <= 0) {
+					remove(task);
+					if (!task.isCancelled())
+						dispatch(task);
+				} else {
+					task.remainingRounds--;
+				}
+				task = next;
+			}
+		}
+		
+		public void cancelAll() {
+			WheelTask<?> task;
+			while ((task = head) != null) {
+				remove(task);
+				task.cancel(false);
+			}
+		}
+		
+	}
+	
+	private class WheelTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+		
+		/** Zero for one-shot tasks, positive for fixed rate and negative for fixed delay */
+		private final long period;
+		private volatile long deadline;
+		private long remainingRounds;
+		private Bucket bucket;
+		private WheelTask<?> prev;
+		private WheelTask<?> next;
+		
+		public WheelTask(@NotNull Callable<V> callable, long deadline, long period) {
+			super(callable);
+			this.period = period;
+			this.deadline = deadline;
+			this.remainingRounds = 0;
+			this.bucket = null;
+			this.prev = null;
+			this.next = null;
+		}
+		
+		@Override
+		public boolean isPeriodic() {
+			return period != 0;
+		}
+		
+		@Override
+		public long getDelay(@NotNull TimeUnit unit) {
+			return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+		
+		@Override
+		public int compareTo(@NotNull Delayed o) {
+			if (o == this)
+				return 0;
+			if (o instanceof WheelTask)
+				return Long.compare(deadline, ((WheelTask<?>) o).deadline);
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+		}
+		
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled)
+				HashedWheelScheduler.this.cancelled.add(this);
+			return cancelled;
+		}
+		
+		@Override
+		public void run() {
+			if (!isPeriodic()) {
+				super.run();
+			} else if (super.runAndReset()) {
+				if (period > 0)
+					deadline += period;
+				else
+					deadline = System.nanoTime() - period;
+				synchronized (pending) {
+					if (shutdown)
+						cancel(false);
+					else
+						pending.add(this);
+				}
+			}
+		}
+		
+	}
+	
+}
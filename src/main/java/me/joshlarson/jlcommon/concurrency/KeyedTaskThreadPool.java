@@ -0,0 +1,178 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import me.joshlarson.jlcommon.log.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * A thread pool where tasks with the same key run strictly in the order they were added, while tasks with different keys run in parallel. Each key has a mailbox that is only posted to the
+ * pool while it has work, so idle keys hold no threads and are removed from memory entirely.
+ */
+public class KeyedTaskThreadPool<K, T> extends ThreadPool {
+	
+	private final Map<K, Mailbox> mailboxes;
+	private final Object repostLock;
+	private final AtomicInteger taskCount;
+	private final int batchSize;
+	private final KeyedTaskExecutor<K, T> executor;
+	
+	public KeyedTaskThreadPool(int nThreads, @NotNull String namePattern, @NotNull KeyedTaskExecutor<K, T> executor) {
+		this(nThreads, namePattern, 16, executor);
+	}
+	
+	/**
+	 * Creates a KeyedTaskThreadPool
+	 *
+	 * @param nThreads    the number of worker threads
+	 * @param namePattern the thread name pattern
+	 * @param batchSize   the maximum number of tasks to run for one key before yielding the thread to other keys
+	 * @param executor    the executor for each task
+	 */
+	public KeyedTaskThreadPool(int nThreads, @NotNull String namePattern, int batchSize, @NotNull KeyedTaskExecutor<K, T> executor) {
+		super(nThreads, namePattern);
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("batchSize must be positive");
+		this.mailboxes = new ConcurrentHashMap<>();
+		this.repostLock = new Object();
+		this.taskCount = new AtomicInteger(0);
+		this.batchSize = batchSize;
+		this.executor = executor;
+	}
+	
+	@Override
+	public void execute(@NotNull Runnable runnable) {
+		throw new UnsupportedOperationException("Runnable are posted automatically by addTask!");
+	}
+	
+	/**
+	 * Adds a task that will run after every previously added task with the same key
+	 *
+	 * @param key the ordering key
+	 * @param t   the task
+	 */
+	public void addTask(@NotNull K key, @NotNull T t) {
+		if (!isRunning()) {
+			assert false : "Thread pool is not running";
+			return;
+		}
+		taskCount.incrementAndGet();
+		Mailbox added = mailboxes.compute(key, (k, mailbox) -> {
+			if (mailbox == null) {
+				mailbox = new Mailbox(k);
+				mailbox.tasks.add(t);
+				// The pool may have stopped since the check above, in which case the new mailbox is never stored
+				return post(mailbox) ? mailbox : null;
+			}
+			mailbox.tasks.add(t);
+			return mailbox;
+		});
+		if (added == null)
+			taskCount.decrementAndGet();
+	}
+	
+	@Override
+	public void stop(boolean interrupt) {
+		synchronized (repostLock) {
+			super.stop(interrupt);
+		}
+	}
+	
+	public int getTaskCount() {
+		return taskCount.get();
+	}
+	
+	/**
+	 * Returns the number of keys that currently have queued or running tasks
+	 *
+	 * @return the number of active keys
+	 */
+	public int getActiveKeyCount() {
+		return mailboxes.size();
+	}
+	
+	/**
+	 * Posts the mailbox to the pool, atomically with stopping
+	 *
+	 * @param mailbox the mailbox to run
+	 * @return TRUE if the mailbox was posted, FALSE if the pool is no longer running
+	 */
+	private boolean post(@NotNull Mailbox mailbox) {
+		synchronized (repostLock) {
+			if (!isRunning())
+				return false;
+			super.execute(mailbox);
+			return true;
+		}
+	}
+	
+	public interface KeyedTaskExecutor<K, T> {
+		
+		void run(@NotNull K key, @NotNull T t);
+	}
+	
+	private class Mailbox implements Runnable {
+		
+		private final K key;
+		private final Queue<T> tasks;
+		private final BiFunction<K, Mailbox, Mailbox> removeIfEmpty;
+		
+		public Mailbox(@NotNull K key) {
+			this.key = key;
+			this.tasks = new ConcurrentLinkedQueue<>();
+			this.removeIfEmpty = (k, mailbox) -> tasks.isEmpty() ? null : mailbox;
+		}
+		
+		@Override
+		public void run() {
+			while (true) {
+				T t;
+				for (int i = 0; i < batchSize && (t = tasks.poll()) != null; i++) {
+					taskCount.decrementAndGet();
+					try {
+						executor.run(key, t);
+					} catch (Throwable e) {
+						Log.e(e);
+					}
+				}
+				// Removal happens under the map's lock for this key, so addTask either sees this mailbox and appends to it, or creates and posts a new one
+				if (mailboxes.computeIfPresent(key, removeIfEmpty) == null)
+					return;
+				// Reposting is atomic with stopping, otherwise the mailbox could be queued behind the end of the queue and never run
+				if (post(this))
+					return;
+				// The pool is stopping, so finish the remaining tasks on this thread
+			}
+		}
+		
+	}
+	
+}
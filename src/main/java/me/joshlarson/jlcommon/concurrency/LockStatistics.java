@@ -0,0 +1,111 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contention statistics for a lock: how often it was acquired, how often the caller had to wait, how long those waits took, and the longest time the lock was held
+ */
+public class LockStatistics {
+	
+	private final LongAdder acquisitions;
+	private final LongAdder contendedAcquisitions;
+	private final TimeHistogram waitTimes;
+	private final AtomicLong longestHold;
+	
+	public LockStatistics() {
+		this.acquisitions = new LongAdder();
+		this.contendedAcquisitions = new LongAdder();
+		this.waitTimes = new TimeHistogram();
+		this.longestHold = new AtomicLong(0);
+	}
+	
+	void recordAcquisition(long waitNanos, boolean contended) {
+		acquisitions.increment();
+		if (contended) {
+			contendedAcquisitions.increment();
+			waitTimes.record(waitNanos);
+		}
+	}
+	
+	void recordHold(long holdNanos) {
+		if (holdNanos > longestHold.get())
+			longestHold.accumulateAndGet(holdNanos, Math::max);
+	}
+	
+	public long getAcquisitions() {
+		return acquisitions.sum();
+	}
+	
+	/**
+	 * Returns the number of acquisitions where the lock was already held or had waiting threads
+	 *
+	 * @return the number of contended acquisitions
+	 */
+	public long getContendedAcquisitions() {
+		return contendedAcquisitions.sum();
+	}
+	
+	/**
+	 * Returns the fraction of acquisitions that were contended
+	 *
+	 * @return the contention ratio between 0 and 1
+	 */
+	public double getContentionRatio() {
+		long acquisitions = this.acquisitions.sum();
+		return acquisitions == 0 ? 0 : contendedAcquisitions.sum() / (double) acquisitions;
+	}
+	
+	/**
+	 * Returns the distribution of time spent waiting for contended acquisitions
+	 *
+	 * @return the wait time histogram
+	 */
+	@NotNull
+	public TimeHistogram getWaitTimes() {
+		return waitTimes;
+	}
+	
+	public long getLongestHold(@NotNull TimeUnit unit) {
+		return unit.convert(longestHold.get(), TimeUnit.NANOSECONDS);
+	}
+	
+	public void reset() {
+		acquisitions.reset();
+		contendedAcquisitions.reset();
+		waitTimes.reset();
+		longestHold.set(0);
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("LockStatistics[acquisitions=%d contended=%d (%.1f%%) wait=%s longestHold=%dus]", getAcquisitions(), getContendedAcquisitions(), getContentionRatio() * 100, waitTimes, getLongestHold(TimeUnit.MICROSECONDS));
+	}
+	
+}
@@ -0,0 +1,129 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.*;
+
+/**
+ * A handle to a task scheduled on a {@link ScheduledThreadPool}, which also records how late each execution started compared to when it was scheduled
+ */
+public class ScheduledTask implements ScheduledFuture<Object> {
+	
+	private final TimeHistogram jitter;
+	private final CountDownLatch futureSet;
+	private volatile ScheduledFuture<?> future;
+	private volatile boolean cancelled;
+	
+	ScheduledTask() {
+		this.jitter = new TimeHistogram();
+		this.futureSet = new CountDownLatch(1);
+		this.future = null;
+		this.cancelled = false;
+	}
+	
+	/**
+	 * Publishes the underlying future. The task may already be running on a worker thread by the time this is called, so anything the task itself calls must not assume
+	 * the future exists yet
+	 *
+	 * @param future the underlying future
+	 */
+	void setFuture(@NotNull ScheduledFuture<?> future) {
+		this.future = future;
+		futureSet.countDown();
+		if (cancelled)
+			future.cancel(false);
+	}
+	
+	/**
+	 * Returns the distribution of how late each execution started, relative to its intended start time
+	 *
+	 * @return the jitter histogram
+	 */
+	@NotNull
+	public TimeHistogram getJitter() {
+		return jitter;
+	}
+	
+	@Override
+	public long getDelay(@NotNull TimeUnit unit) {
+		return awaitFuture().getDelay(unit);
+	}
+	
+	@Override
+	public int compareTo(@NotNull Delayed o) {
+		return awaitFuture().compareTo(o);
+	}
+	
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		cancelled = true;
+		ScheduledFuture<?> future = this.future;
+		return future == null || future.cancel(mayInterruptIfRunning);
+	}
+	
+	@Override
+	public boolean isCancelled() {
+		ScheduledFuture<?> future = this.future;
+		return cancelled || (future != null && future.isCancelled());
+	}
+	
+	@Override
+	public boolean isDone() {
+		ScheduledFuture<?> future = this.future;
+		return future == null ? cancelled : future.isDone();
+	}
+	
+	@Override
+	public Object get() throws InterruptedException, ExecutionException {
+		futureSet.await();
+		return future.get();
+	}
+	
+	@Override
+	public Object get(long timeout, @NotNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (!futureSet.await(timeout, unit))
+			throw new TimeoutException();
+		return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+	}
+	
+	@NotNull
+	private ScheduledFuture<?> awaitFuture() {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				futureSet.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		return future;
+	}
+	
+}
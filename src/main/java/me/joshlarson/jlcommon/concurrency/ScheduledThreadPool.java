@@ -34,6 +34,8 @@ public class ScheduledThreadPool {
 	private final ThreadRunningProtector running;
 	private final int nThreads;
 	private final ThreadFactory threadFactory;
+	private long wheelTickNanos;
+	private int wheelSize;
 	private ScheduledExecutorService executor;
 	
 	public ScheduledThreadPool(int nThreads, @NotNull String nameFormat) {
@@ -44,13 +46,36 @@ public class ScheduledThreadPool {
 		this.running = new ThreadRunningProtector();
 		this.nThreads = nThreads;
 		this.threadFactory = ThreadUtilities.newThreadFactory(nameFormat, priority);
+		this.wheelTickNanos = 0;
+		this.wheelSize = 0;
 		this.executor = null;
 	}
 	
+	/**
+	 * Schedules tasks on a hashed timing wheel instead of the default binary heap. Scheduling and cancelling become O(1), but every delay is rounded up to the next tick. The wheel is advanced by
+	 * an additional thread, and tasks run on the nThreads worker threads. Must be called before the pool is started.
+	 * <p>
+	 * Shutdown semantics differ from the default ScheduledThreadPoolExecutor: shutting down the wheel cancels every delayed task that has not fired yet, rather than running it when
+	 * its delay expires. {@link #stop()} discards pending delayed tasks in both modes.
+	 *
+	 * @param tickDuration  the resolution of the wheel
+	 * @param unit          the unit of tickDuration
+	 * @param ticksPerWheel the number of buckets in the wheel, rounded up to a power of two
+	 */
+	public void setTimerWheel(long tickDuration, @NotNull TimeUnit unit, int ticksPerWheel) {
+		if (tickDuration <= 0 || ticksPerWheel <= 0)
+			throw new IllegalArgumentException("tickDuration and ticksPerWheel must be positive");
+		this.wheelTickNanos = unit.toNanos(tickDuration);
+		this.wheelSize = ticksPerWheel;
+	}
+	
 	public void start() {
 		if (!running.start())
 			return;
-		executor = Executors.newScheduledThreadPool(nThreads, threadFactory);
+		if (wheelTickNanos > 0)
+			executor = new HashedWheelScheduler(nThreads, threadFactory, wheelTickNanos, wheelSize);
+		else
+			executor = Executors.newScheduledThreadPool(nThreads, threadFactory);
 	}
 	
 	public void stop() {
@@ -64,22 +89,115 @@ public class ScheduledThreadPool {
 	}
 	
 	public ScheduledFuture<?> executeWithFixedRate(long initialDelay, long time, @NotNull Runnable runnable) {
+		return executeWithFixedRate(initialDelay, time, TimeUnit.MILLISECONDS, runnable);
+	}
+	
+	public ScheduledFuture<?> executeWithFixedDelay(long initialDelay, long time, @NotNull Runnable runnable) {
+		return executeWithFixedDelay(initialDelay, time, TimeUnit.MILLISECONDS, runnable);
+	}
+	
+	@Nullable
+	public ScheduledFuture<?> execute(long delay, @NotNull Runnable runnable) {
+		return execute(delay, TimeUnit.MILLISECONDS, runnable);
+	}
+	
+	/**
+	 * Executes the runnable periodically, where each execution is scheduled relative to the start of the first
+	 *
+	 * @param initialDelay the delay before the first execution
+	 * @param period       the time between the start of each execution
+	 * @param unit         the unit of initialDelay and period
+	 * @param runnable     the runnable to execute
+	 * @return the scheduled task, or null if this pool is not running
+	 */
+	@Nullable
+	public ScheduledTask executeWithFixedRate(long initialDelay, long period, @NotNull TimeUnit unit, @NotNull Runnable runnable) {
 		if (!running.expectRunning())
 			return null;
-		return executor.scheduleAtFixedRate(() -> ThreadUtilities.safeRun(runnable), initialDelay, time, TimeUnit.MILLISECONDS);
+		ScheduledTask task = new ScheduledTask();
+		long periodNanos = unit.toNanos(period);
+		MeasuredRunnable measured = new MeasuredRunnable(task.getJitter(), runnable, System.nanoTime() + unit.toNanos(initialDelay), periodNanos);
+		task.setFuture(executor.scheduleAtFixedRate(measured, initialDelay, period, unit));
+		return task;
 	}
 	
-	public ScheduledFuture<?> executeWithFixedDelay(long initialDelay, long time, @NotNull Runnable runnable) {
+	/**
+	 * Executes the runnable periodically, where each execution is scheduled relative to the end of the previous one
+	 *
+	 * @param initialDelay the delay before the first execution
+	 * @param delay        the time between the end of one execution and the start of the next
+	 * @param unit         the unit of initialDelay and delay
+	 * @param runnable     the runnable to execute
+	 * @return the scheduled task, or null if this pool is not running
+	 */
+	@Nullable
+	public ScheduledTask executeWithFixedDelay(long initialDelay, long delay, @NotNull TimeUnit unit, @NotNull Runnable runnable) {
 		if (!running.expectRunning())
 			return null;
-		return executor.scheduleWithFixedDelay(() -> ThreadUtilities.safeRun(runnable), initialDelay, time, TimeUnit.MILLISECONDS);
+		ScheduledTask task = new ScheduledTask();
+		MeasuredRunnable measured = new MeasuredRunnable(task.getJitter(), runnable, System.nanoTime() + unit.toNanos(initialDelay), -unit.toNanos(delay));
+		task.setFuture(executor.scheduleWithFixedDelay(measured, initialDelay, delay, unit));
+		return task;
 	}
 	
+	/**
+	 * Executes the runnable once after the specified delay
+	 *
+	 * @param delay    the delay before execution
+	 * @param unit     the unit of delay
+	 * @param runnable the runnable to execute
+	 * @return the scheduled task, or null if this pool is not running
+	 */
 	@Nullable
-	public ScheduledFuture<?> execute(long delay, @NotNull Runnable runnable) {
+	public ScheduledTask execute(long delay, @NotNull TimeUnit unit, @NotNull Runnable runnable) {
 		if (!running.expectRunning())
 			return null;
-		return executor.schedule(() -> ThreadUtilities.safeRun(runnable), delay, TimeUnit.MILLISECONDS);
+		ScheduledTask task = new ScheduledTask();
+		MeasuredRunnable measured = new MeasuredRunnable(task.getJitter(), runnable, System.nanoTime() + unit.toNanos(delay), 0);
+		task.setFuture(executor.schedule(measured, delay, unit));
+		return task;
+	}
+	
+	/**
+	 * Executes the runnable at a fixed rate with sub-millisecond precision. The task parks until shortly before each deadline and then spins, so it permanently occupies one of the threads in
+	 * this pool until it is cancelled or the pool is stopped.
+	 *
+	 * @param initialDelay the delay before the first execution
+	 * @param period       the time between the start of each execution
+	 * @param unit         the unit of initialDelay and period
+	 * @param runnable     the runnable to execute
+	 * @return the scheduled task, or null if this pool is not running
+	 */
+	@Nullable
+	public ScheduledTask executeWithPreciseRate(long initialDelay, long period, @NotNull TimeUnit unit, @NotNull Runnable runnable) {
+		if (!running.expectRunning())
+			return null;
+		if (period <= 0)
+			throw new IllegalArgumentException("period must be positive");
+		ScheduledTask task = new ScheduledTask();
+		long firstExecution = System.nanoTime() + unit.toNanos(initialDelay);
+		long periodNanos = unit.toNanos(period);
+		task.setFuture(executor.schedule(() -> runPrecise(task, runnable, firstExecution, periodNanos), 0, TimeUnit.NANOSECONDS));
+		return task;
+	}
+	
+	/**
+	 * Schedules the runnable directly on the underlying executor, without a {@link ScheduledTask} or jitter measurement, for callers that re-arm themselves on every execution
+	 *
+	 * @param delay    the delay before execution
+	 * @param unit     the unit of delay
+	 * @param runnable the runnable to execute
+	 * @return the future of the execution, or null if this pool is not running
+	 */
+	@Nullable
+	ScheduledFuture<?> schedule(long delay, @NotNull TimeUnit unit, @NotNull Runnable runnable) {
+		if (!running.isRunning())
+			return null;
+		try {
+			return executor.schedule(runnable, delay, unit);
+		} catch (RejectedExecutionException e) {
+			return null; // Stopped after the running check
+		}
 	}
 	
 	public boolean awaitTermination(long time) {
@@ -92,4 +210,41 @@ public class ScheduledThreadPool {
 		}
 	}
 	
+	private static void runPrecise(@NotNull ScheduledTask task, @NotNull Runnable runnable, long nextExecution, long period) {
+		while (!task.isCancelled()) {
+			if (!Delay.sleepUntilPreciseNano(nextExecution))
+				return;
+			task.getJitter().record(System.nanoTime() - nextExecution);
+			ThreadUtilities.safeRun(runnable);
+			nextExecution += period;
+		}
+	}
+	
+	private static class MeasuredRunnable implements Runnable {
+		
+		private final TimeHistogram jitter;
+		private final Runnable runnable;
+		/** Zero for one-shot tasks, positive for fixed rate and negative for fixed delay */
+		private final long period;
+		private long nextExecution;
+		
+		public MeasuredRunnable(@NotNull TimeHistogram jitter, @NotNull Runnable runnable, long firstExecution, long period) {
+			this.jitter = jitter;
+			this.runnable = runnable;
+			this.period = period;
+			this.nextExecution = firstExecution;
+		}
+		
+		@Override
+		public void run() {
+			jitter.record(System.nanoTime() - nextExecution);
+			ThreadUtilities.safeRun(runnable);
+			if (period > 0)
+				nextExecution += period;
+			else if (period < 0)
+				nextExecution = System.nanoTime() - period;
+		}
+		
+	}
+	
 }
@@ -24,48 +24,143 @@
 package me.joshlarson.jlcommon.concurrency;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 public class SmartLock {
 	
-	private final Lock lock;
+	private static final int MIN_SPINS = 8;
+	private static final int MAX_SPINS = 1024;
+	
+	private final ReentrantLock lock;
 	private final Condition condition;
+	private final Map<String, Condition> namedConditions;
+	private final AcquisitionMode mode;
+	private final LockStatistics statistics;
+	private final LockGuard guard;
+	private volatile int spins;
+	private long holdStart;
 	
+	/**
+	 * Creates a fair SmartLock without statistics
+	 */
 	public SmartLock() {
-		this.lock = new ReentrantLock(true);
+		this(AcquisitionMode.FAIR, false);
+	}
+	
+	/**
+	 * Creates a SmartLock without statistics
+	 *
+	 * @param fair TRUE if waiting threads should acquire the lock in FIFO order, FALSE for higher throughput
+	 */
+	public SmartLock(boolean fair) {
+		this(fair ? AcquisitionMode.FAIR : AcquisitionMode.NON_FAIR, false);
+	}
+	
+	public SmartLock(@NotNull AcquisitionMode mode) {
+		this(mode, false);
+	}
+	
+	/**
+	 * Creates a SmartLock
+	 *
+	 * @param mode             how a contended lock is acquired
+	 * @param recordStatistics TRUE to record contention statistics, which adds two System.nanoTime() calls per acquisition
+	 */
+	public SmartLock(@NotNull AcquisitionMode mode, boolean recordStatistics) {
+		this.lock = new ReentrantLock(mode == AcquisitionMode.FAIR);
 		this.condition = lock.newCondition();
+		this.namedConditions = new ConcurrentHashMap<>();
+		this.mode = mode;
+		this.statistics = recordStatistics ? new LockStatistics() : null;
+		this.guard = this::unlock;
+		this.spins = MIN_SPINS * 8;
+		this.holdStart = 0;
+	}
+	
+	@NotNull
+	public AcquisitionMode getMode() {
+		return mode;
+	}
+	
+	/**
+	 * Returns the contention statistics for this lock
+	 *
+	 * @return the statistics, or null if this lock was created without statistics
+	 */
+	@Nullable
+	public LockStatistics getStatistics() {
+		return statistics;
 	}
 	
 	public void lock() {
-		lock.lock();
+		if (statistics == null) {
+			if (mode != AcquisitionMode.SPIN_THEN_PARK || !spin())
+				lock.lock();
+			return;
+		}
+		boolean contended = isContended();
+		long start = System.nanoTime();
+		if (mode != AcquisitionMode.SPIN_THEN_PARK || !spin())
+			lock.lock();
+		onAcquired(start, contended);
 	}
 	
 	public void lockInterruptibly() throws InterruptedException {
-		lock.lockInterruptibly();
+		boolean contended = statistics != null && isContended();
+		long start = statistics == null ? 0 : System.nanoTime();
+		if (mode != AcquisitionMode.SPIN_THEN_PARK || !spin())
+			lock.lockInterruptibly();
+		onAcquired(start, contended);
 	}
 	
 	public boolean tryLock() {
-		return lock.tryLock();
+		if (!lock.tryLock())
+			return false;
+		if (statistics != null)
+			onAcquired(System.nanoTime(), false);
+		return true;
 	}
 	
 	public boolean tryLock(long time, @NotNull TimeUnit unit) throws InterruptedException {
-		return lock.tryLock(time, unit);
+		boolean contended = statistics != null && isContended();
+		long start = statistics == null ? 0 : System.nanoTime();
+		if (!lock.tryLock(time, unit))
+			return false;
+		onAcquired(start, contended);
+		return true;
 	}
 	
 	public void unlock() {
+		if (statistics != null && lock.getHoldCount() == 1)
+			statistics.recordHold(System.nanoTime() - holdStart);
 		lock.unlock();
 	}
 	
+	/**
+	 * Acquires this lock for use in a try-with-resources block
+	 *
+	 * @return the guard that releases this lock when closed
+	 */
+	@NotNull
+	public LockGuard locked() {
+		lock();
+		return guard;
+	}
+	
 	public void await() throws InterruptedException {
 		lock();
 		try {
 			condition.await();
 		} finally {
+			restartHoldTime();
 			unlock();
 		}
 	}
@@ -75,6 +170,7 @@ public class SmartLock {
 		try {
 			condition.awaitUninterruptibly();
 		} finally {
+			restartHoldTime();
 			unlock();
 		}
 	}
@@ -84,6 +180,7 @@ public class SmartLock {
 		try {
 			return condition.awaitNanos(nanosTimeout);
 		} finally {
+			restartHoldTime();
 			unlock();
 		}
 	}
@@ -93,6 +190,7 @@ public class SmartLock {
 		try {
 			return condition.await(time, unit);
 		} finally {
+			restartHoldTime();
 			unlock();
 		}
 	}
@@ -102,6 +200,7 @@ public class SmartLock {
 		try {
 			return condition.awaitUntil(deadline);
 		} finally {
+			restartHoldTime();
 			unlock();
 		}
 	}
@@ -124,4 +223,181 @@ public class SmartLock {
 		}
 	}
 	
+	/**
+	 * Waits until the predicate is true. The predicate is checked while holding this lock, so a signal sent between the check and the wait cannot be missed
+	 *
+	 * @param predicate the condition to wait for
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void awaitUntil(@NotNull BooleanSupplier predicate) throws InterruptedException {
+		awaitUntil(condition, predicate);
+	}
+	
+	/**
+	 * Waits until the predicate is true, or the timeout elapses. The predicate is checked while holding this lock, so a signal sent between the check and the wait cannot be missed
+	 *
+	 * @param predicate the condition to wait for
+	 * @param timeout   the maximum time to wait
+	 * @param unit      the unit of timeout
+	 * @return TRUE if the predicate is true, FALSE if the timeout elapsed first
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public boolean awaitUntil(@NotNull BooleanSupplier predicate, long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+		return awaitUntil(condition, predicate, unit.toNanos(timeout));
+	}
+	
+	/**
+	 * Waits on the named condition until the predicate is true. Only signals sent to the same named condition wake this thread
+	 *
+	 * @param conditionName the name of the condition
+	 * @param predicate     the condition to wait for
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void awaitUntil(@NotNull String conditionName, @NotNull BooleanSupplier predicate) throws InterruptedException {
+		awaitUntil(getCondition(conditionName), predicate);
+	}
+	
+	/**
+	 * Waits on the named condition until the predicate is true, or the timeout elapses. Only signals sent to the same named condition wake this thread
+	 *
+	 * @param conditionName the name of the condition
+	 * @param predicate     the condition to wait for
+	 * @param timeout       the maximum time to wait
+	 * @param unit          the unit of timeout
+	 * @return TRUE if the predicate is true, FALSE if the timeout elapsed first
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public boolean awaitUntil(@NotNull String conditionName, @NotNull BooleanSupplier predicate, long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+		return awaitUntil(getCondition(conditionName), predicate, unit.toNanos(timeout));
+	}
+	
+	public void signal(@NotNull String conditionName) {
+		Condition condition = getCondition(conditionName);
+		lock();
+		try {
+			condition.signal();
+		} finally {
+			unlock();
+		}
+	}
+	
+	public void signalAll(@NotNull String conditionName) {
+		Condition condition = getCondition(conditionName);
+		lock();
+		try {
+			condition.signalAll();
+		} finally {
+			unlock();
+		}
+	}
+	
+	/**
+	 * Runs the update while holding this lock, and then signals every thread waiting on the default condition
+	 *
+	 * @param update the state change that waiting threads are interested in
+	 */
+	public void updateAndSignalAll(@NotNull Runnable update) {
+		updateAndSignalAll(condition, update);
+	}
+	
+	/**
+	 * Runs the update while holding this lock, and then signals every thread waiting on the named condition
+	 *
+	 * @param conditionName the name of the condition
+	 * @param update        the state change that waiting threads are interested in
+	 */
+	public void updateAndSignalAll(@NotNull String conditionName, @NotNull Runnable update) {
+		updateAndSignalAll(getCondition(conditionName), update);
+	}
+	
+	@NotNull
+	private Condition getCondition(@NotNull String conditionName) {
+		return namedConditions.computeIfAbsent(conditionName, name -> lock.newCondition());
+	}
+	
+	private void awaitUntil(@NotNull Condition condition, @NotNull BooleanSupplier predicate) throws InterruptedException {
+		lock();
+		try {
+			while (!predicate.getAsBoolean())
+				condition.await();
+		} finally {
+			restartHoldTime();
+			unlock();
+		}
+	}
+	
+	private boolean awaitUntil(@NotNull Condition condition, @NotNull BooleanSupplier predicate, long nanos) throws InterruptedException {
+		lock();
+		try {
+			while (!predicate.getAsBoolean()) {
+				if (nanos <= 0)
+					return false;
+				nanos = condition.awaitNanos(nanos);
+			}
+			return true;
+		} finally {
+			restartHoldTime();
+			unlock();
+		}
+	}
+	
+	private void updateAndSignalAll(@NotNull Condition condition, @NotNull Runnable update) {
+		lock();
+		try {
+			update.run();
+		} finally {
+			condition.signalAll();
+			unlock();
+		}
+	}
+	
+	/**
+	 * Awaiting a condition releases the lock, so the hold time restarts once the lock has been reacquired
+	 */
+	private void restartHoldTime() {
+		if (statistics != null)
+			holdStart = System.nanoTime();
+	}
+	
+	private boolean isContended() {
+		return !lock.isHeldByCurrentThread() && (lock.isLocked() || lock.hasQueuedThreads());
+	}
+	
+	private void onAcquired(long start, boolean contended) {
+		if (statistics == null || lock.getHoldCount() != 1)
+			return;
+		long now = System.nanoTime();
+		statistics.recordAcquisition(now - start, contended);
+		holdStart = now;
+	}
+	
+	/**
+	 * Spins on tryLock for a number of iterations that adapts to how often spinning succeeds
+	 *
+	 * @return TRUE if the lock was acquired while spinning, FALSE if the caller should park
+	 */
+	private boolean spin() {
+		int spins = this.spins;
+		for (int i = 0; i < spins; i++) {
+			if (lock.tryLock()) {
+				if (i > 0 && spins < MAX_SPINS)
+					this.spins = Math.min(MAX_SPINS, spins + (spins >> 2) + 1);
+				return true;
+			}
+			Thread.onSpinWait();
+		}
+		if (spins > MIN_SPINS)
+			this.spins = Math.max(MIN_SPINS, spins >> 1);
+		return false;
+	}
+	
+	public enum AcquisitionMode {
+		/** Waiting threads acquire the lock in FIFO order */
+		FAIR,
+		/** Threads may barge ahead of waiting threads, which greatly improves throughput under contention */
+		NON_FAIR,
+		/** Non-fair, and spins briefly before parking. The spin count adapts to how often spinning succeeds */
+		SPIN_THEN_PARK
+	}
+	
 }
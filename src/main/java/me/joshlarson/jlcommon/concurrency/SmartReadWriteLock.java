@@ -0,0 +1,211 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A read-write counterpart to {@link SmartLock}. Any number of readers may hold the lock at once, while writers are exclusive
+ */
+public class SmartReadWriteLock {
+	
+	private final ReentrantReadWriteLock lock;
+	private final LockStatistics readStatistics;
+	private final LockStatistics writeStatistics;
+	private final LockGuard readGuard;
+	private final LockGuard writeGuard;
+	private long writeHoldStart;
+	
+	/**
+	 * Creates a non-fair SmartReadWriteLock without statistics
+	 */
+	public SmartReadWriteLock() {
+		this(false, false);
+	}
+	
+	public SmartReadWriteLock(boolean fair) {
+		this(fair, false);
+	}
+	
+	/**
+	 * Creates a SmartReadWriteLock
+	 *
+	 * @param fair             TRUE if waiting threads should acquire the lock in FIFO order, FALSE for higher throughput
+	 * @param recordStatistics TRUE to record contention statistics for both the read and write lock
+	 */
+	public SmartReadWriteLock(boolean fair, boolean recordStatistics) {
+		this.lock = new ReentrantReadWriteLock(fair);
+		this.readStatistics = recordStatistics ? new LockStatistics() : null;
+		this.writeStatistics = recordStatistics ? new LockStatistics() : null;
+		this.readGuard = this::unlockRead;
+		this.writeGuard = this::unlockWrite;
+		this.writeHoldStart = 0;
+	}
+	
+	/**
+	 * Returns the read lock statistics. Hold times are not tracked for the read lock, since it may be held by many threads at once
+	 *
+	 * @return the statistics, or null if this lock was created without statistics
+	 */
+	@Nullable
+	public LockStatistics getReadStatistics() {
+		return readStatistics;
+	}
+	
+	@Nullable
+	public LockStatistics getWriteStatistics() {
+		return writeStatistics;
+	}
+	
+	public void lockRead() {
+		if (readStatistics == null) {
+			lock.readLock().lock();
+			return;
+		}
+		boolean contended = lock.isWriteLocked() && !lock.isWriteLockedByCurrentThread();
+		long start = System.nanoTime();
+		lock.readLock().lock();
+		readStatistics.recordAcquisition(System.nanoTime() - start, contended);
+	}
+	
+	public void lockReadInterruptibly() throws InterruptedException {
+		if (readStatistics == null) {
+			lock.readLock().lockInterruptibly();
+			return;
+		}
+		boolean contended = lock.isWriteLocked() && !lock.isWriteLockedByCurrentThread();
+		long start = System.nanoTime();
+		lock.readLock().lockInterruptibly();
+		readStatistics.recordAcquisition(System.nanoTime() - start, contended);
+	}
+	
+	public boolean tryLockRead() {
+		if (!lock.readLock().tryLock())
+			return false;
+		if (readStatistics != null)
+			readStatistics.recordAcquisition(0, false);
+		return true;
+	}
+	
+	public boolean tryLockRead(long time, @NotNull TimeUnit unit) throws InterruptedException {
+		if (readStatistics == null)
+			return lock.readLock().tryLock(time, unit);
+		boolean contended = lock.isWriteLocked() && !lock.isWriteLockedByCurrentThread();
+		long start = System.nanoTime();
+		if (!lock.readLock().tryLock(time, unit))
+			return false;
+		readStatistics.recordAcquisition(System.nanoTime() - start, contended);
+		return true;
+	}
+	
+	public void unlockRead() {
+		lock.readLock().unlock();
+	}
+	
+	/**
+	 * Acquires the read lock for use in a try-with-resources block
+	 *
+	 * @return the guard that releases the read lock when closed
+	 */
+	@NotNull
+	public LockGuard readLocked() {
+		lockRead();
+		return readGuard;
+	}
+	
+	public void lockWrite() {
+		if (writeStatistics == null) {
+			lock.writeLock().lock();
+			return;
+		}
+		boolean contended = isWriteContended();
+		long start = System.nanoTime();
+		lock.writeLock().lock();
+		onWriteAcquired(start, contended);
+	}
+	
+	public void lockWriteInterruptibly() throws InterruptedException {
+		if (writeStatistics == null) {
+			lock.writeLock().lockInterruptibly();
+			return;
+		}
+		boolean contended = isWriteContended();
+		long start = System.nanoTime();
+		lock.writeLock().lockInterruptibly();
+		onWriteAcquired(start, contended);
+	}
+	
+	public boolean tryLockWrite() {
+		if (!lock.writeLock().tryLock())
+			return false;
+		if (writeStatistics != null)
+			onWriteAcquired(System.nanoTime(), false);
+		return true;
+	}
+	
+	public boolean tryLockWrite(long time, @NotNull TimeUnit unit) throws InterruptedException {
+		if (writeStatistics == null)
+			return lock.writeLock().tryLock(time, unit);
+		boolean contended = isWriteContended();
+		long start = System.nanoTime();
+		if (!lock.writeLock().tryLock(time, unit))
+			return false;
+		onWriteAcquired(start, contended);
+		return true;
+	}
+	
+	public void unlockWrite() {
+		if (writeStatistics != null && lock.getWriteHoldCount() == 1)
+			writeStatistics.recordHold(System.nanoTime() - writeHoldStart);
+		lock.writeLock().unlock();
+	}
+	
+	/**
+	 * Acquires the write lock for use in a try-with-resources block
+	 *
+	 * @return the guard that releases the write lock when closed
+	 */
+	@NotNull
+	public LockGuard writeLocked() {
+		lockWrite();
+		return writeGuard;
+	}
+	
+	private boolean isWriteContended() {
+		return !lock.isWriteLockedByCurrentThread() && (lock.isWriteLocked() || lock.getReadLockCount() > 0);
+	}
+	
+	private void onWriteAcquired(long start, boolean contended) {
+		if (lock.getWriteHoldCount() != 1)
+			return;
+		long now = System.nanoTime();
+		writeStatistics.recordAcquisition(now - start, contended);
+		writeHoldStart = now;
+	}
+	
+}
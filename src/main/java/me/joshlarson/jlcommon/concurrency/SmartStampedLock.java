@@ -0,0 +1,221 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * A {@link StampedLock} with the same ergonomics as {@link SmartLock}. Readers can use optimistic reads, which never block writers and only fall back to a read lock when a write happened in
+ * the meantime. Unlike the other locks in this package, this lock is not reentrant.
+ */
+public class SmartStampedLock {
+	
+	private final StampedLock lock;
+	private final LockStatistics readStatistics;
+	private final LockStatistics writeStatistics;
+	private final LongAdder optimisticReads;
+	private final LongAdder optimisticFailures;
+	private final LockGuard readGuard;
+	private final LockGuard writeGuard;
+	private long writeHoldStart;
+	
+	public SmartStampedLock() {
+		this(false);
+	}
+	
+	/**
+	 * Creates a SmartStampedLock
+	 *
+	 * @param recordStatistics TRUE to record contention statistics for both the read and write lock
+	 */
+	public SmartStampedLock(boolean recordStatistics) {
+		this.lock = new StampedLock();
+		this.readStatistics = recordStatistics ? new LockStatistics() : null;
+		this.writeStatistics = recordStatistics ? new LockStatistics() : null;
+		this.optimisticReads = new LongAdder();
+		this.optimisticFailures = new LongAdder();
+		this.readGuard = this::unlockRead;
+		this.writeGuard = this::unlockWrite;
+		this.writeHoldStart = 0;
+	}
+	
+	/**
+	 * Returns the read lock statistics. Hold times are not tracked for the read lock, since it may be held by many threads at once
+	 *
+	 * @return the statistics, or null if this lock was created without statistics
+	 */
+	@Nullable
+	public LockStatistics getReadStatistics() {
+		return readStatistics;
+	}
+	
+	@Nullable
+	public LockStatistics getWriteStatistics() {
+		return writeStatistics;
+	}
+	
+	/**
+	 * Returns the number of reads performed through {@link #optimisticRead(Supplier)}
+	 *
+	 * @return the number of optimistic reads
+	 */
+	public long getOptimisticReads() {
+		return optimisticReads.sum();
+	}
+	
+	/**
+	 * Returns the number of optimistic reads that were invalidated by a write, and had to be retried under the read lock
+	 *
+	 * @return the number of failed optimistic reads
+	 */
+	public long getOptimisticFailures() {
+		return optimisticFailures.sum();
+	}
+	
+	/**
+	 * Returns a stamp for an optimistic read, or zero if the write lock is currently held
+	 *
+	 * @return the stamp to pass to {@link #validate(long)}
+	 */
+	public long tryOptimisticRead() {
+		return lock.tryOptimisticRead();
+	}
+	
+	/**
+	 * Returns whether or not the lock has been acquired for writing since the stamp was issued
+	 *
+	 * @param stamp the stamp from {@link #tryOptimisticRead()}
+	 * @return TRUE if no write has happened since the stamp was issued, FALSE otherwise
+	 */
+	public boolean validate(long stamp) {
+		return lock.validate(stamp);
+	}
+	
+	/**
+	 * Runs the reader without locking, and runs it again under the read lock if a write happened at the same time. The reader must only read state, and must tolerate seeing inconsistent
+	 * values on the first attempt
+	 *
+	 * @param reader the function that reads the guarded state
+	 * @param <T>    the result type
+	 * @return the result of a read that was not interleaved with a write
+	 */
+	public <T> T optimisticRead(@NotNull Supplier<T> reader) {
+		optimisticReads.increment();
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			T result = reader.get();
+			if (lock.validate(stamp))
+				return result;
+		}
+		optimisticFailures.increment();
+		lockRead();
+		try {
+			return reader.get();
+		} finally {
+			unlockRead();
+		}
+	}
+	
+	public void lockRead() {
+		if (readStatistics == null) {
+			lock.readLock();
+			return;
+		}
+		boolean contended = lock.isWriteLocked();
+		long start = System.nanoTime();
+		lock.readLock();
+		readStatistics.recordAcquisition(System.nanoTime() - start, contended);
+	}
+	
+	public boolean tryLockRead() {
+		if (lock.tryReadLock() == 0)
+			return false;
+		if (readStatistics != null)
+			readStatistics.recordAcquisition(0, false);
+		return true;
+	}
+	
+	public void unlockRead() {
+		if (!lock.tryUnlockRead())
+			throw new IllegalMonitorStateException("Read lock is not held");
+	}
+	
+	/**
+	 * Acquires the read lock for use in a try-with-resources block
+	 *
+	 * @return the guard that releases the read lock when closed
+	 */
+	@NotNull
+	public LockGuard readLocked() {
+		lockRead();
+		return readGuard;
+	}
+	
+	public void lockWrite() {
+		if (writeStatistics == null) {
+			lock.writeLock();
+			return;
+		}
+		boolean contended = lock.isWriteLocked() || lock.isReadLocked();
+		long start = System.nanoTime();
+		lock.writeLock();
+		long now = System.nanoTime();
+		writeStatistics.recordAcquisition(now - start, contended);
+		writeHoldStart = now;
+	}
+	
+	public boolean tryLockWrite() {
+		if (lock.tryWriteLock() == 0)
+			return false;
+		if (writeStatistics != null) {
+			writeStatistics.recordAcquisition(0, false);
+			writeHoldStart = System.nanoTime();
+		}
+		return true;
+	}
+	
+	public void unlockWrite() {
+		if (writeStatistics != null && lock.isWriteLocked())
+			writeStatistics.recordHold(System.nanoTime() - writeHoldStart);
+		if (!lock.tryUnlockWrite())
+			throw new IllegalMonitorStateException("Write lock is not held");
+	}
+	
+	/**
+	 * Acquires the write lock for use in a try-with-resources block
+	 *
+	 * @return the guard that releases the write lock when closed
+	 */
+	@NotNull
+	public LockGuard writeLocked() {
+		lockWrite();
+		return writeGuard;
+	}
+	
+}
@@ -23,27 +23,49 @@
  ***********************************************************************************/
 package me.joshlarson.jlcommon.concurrency;
 
+import me.joshlarson.jlcommon.log.Log;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TaskThreadPool<T> extends ThreadPool {
 	
 	private final Queue<T> tasks;
+	private final AtomicInteger taskCount;
+	private final AtomicInteger activeRunners;
+	private final int nThreads;
+	private final int batchSize;
+	private final TaskExecutor<T> executor;
 	private final Runnable runner;
 	
 	public TaskThreadPool(int nThreads, @NotNull String namePattern, @NotNull TaskExecutor<T> executor) {
+		this(nThreads, namePattern, 1, executor);
+	}
+	
+	/**
+	 * Creates a TaskThreadPool where each worker drains up to batchSize tasks every time it wakes up. If batchSize is greater than one, tasks are handed to
+	 * {@link TaskExecutor#runBatch(List)} instead of {@link TaskExecutor#run(Object)}
+	 *
+	 * @param nThreads    the number of worker threads
+	 * @param namePattern the thread name pattern
+	 * @param batchSize   the maximum number of tasks to drain per wakeup
+	 * @param executor    the executor for each task or batch
+	 */
+	public TaskThreadPool(int nThreads, @NotNull String namePattern, int batchSize, @NotNull TaskExecutor<T> executor) {
 		super(nThreads, namePattern);
-		this.tasks = new ArrayDeque<>();
-		this.runner = () -> {
-			T t;
-			synchronized (tasks) {
-				t = tasks.poll();
-			}
-			if (t != null)
-				executor.run(t);
-		};
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("batchSize must be positive");
+		this.tasks = new ConcurrentLinkedQueue<>();
+		this.taskCount = new AtomicInteger(0);
+		this.activeRunners = new AtomicInteger(0);
+		this.nThreads = nThreads;
+		this.batchSize = batchSize;
+		this.executor = executor;
+		this.runner = this::drainTasks;
 	}
 	
 	@Override
@@ -52,19 +74,100 @@ public class TaskThreadPool<T> extends ThreadPool {
 	}
 	
 	public void addTask(@NotNull T t) {
-		synchronized (tasks) {
-			tasks.add(t);
+		tasks.add(t);
+		taskCount.incrementAndGet();
+		if (!isRunning()) {
+			super.execute(runner); // Reports the misuse like ThreadPool does, without reserving a runner slot that would never be released
+			return;
+		}
+		if (!acquireRunner())
+			return;
+		boolean posted = false;
+		try {
+			// The pool may have been stopped while the slot was being reserved
+			if (isRunning()) {
+				super.execute(runner);
+				posted = true;
+			}
+		} finally {
+			if (!posted)
+				activeRunners.decrementAndGet();
 		}
-		super.execute(runner);
 	}
 	
 	public int getTaskCount() {
-		return tasks.size();
+		return taskCount.get();
+	}
+	
+	/**
+	 * Reserves one of the nThreads runner slots, so that a runner is only posted to the underlying pool when a worker is idle
+	 *
+	 * @return TRUE if a runner slot was reserved, FALSE if every worker is already draining tasks
+	 */
+	private boolean acquireRunner() {
+		while (true) {
+			int active = activeRunners.get();
+			if (active >= nThreads)
+				return false;
+			if (activeRunners.compareAndSet(active, active + 1))
+				return true;
+		}
+	}
+	
+	private void drainTasks() {
+		while (true) {
+			int drained = (batchSize == 1) ? drainSingle() : drainBatch();
+			if (drained == 0) {
+				activeRunners.decrementAndGet();
+				// A task may have been added after the last poll, but before the decrement
+				if (tasks.isEmpty() || !acquireRunner())
+					return;
+			}
+		}
+	}
+	
+	private int drainSingle() {
+		T t = tasks.poll();
+		if (t == null)
+			return 0;
+		taskCount.decrementAndGet();
+		try {
+			executor.run(t);
+		} catch (Throwable e) {
+			Log.e(e);
+		}
+		return 1;
+	}
+	
+	private int drainBatch() {
+		List<T> batch = new ArrayList<>(Math.min(batchSize, 64));
+		T t;
+		while (batch.size() < batchSize && (t = tasks.poll()) != null)
+			batch.add(t);
+		if (batch.isEmpty())
+			return 0;
+		taskCount.addAndGet(-batch.size());
+		try {
+			executor.runBatch(batch);
+		} catch (Throwable e) {
+			Log.e(e);
+		}
+		return batch.size();
 	}
 	
 	public interface TaskExecutor<T> {
 		
 		void run(@NotNull T t);
+		
+		/**
+		 * Runs a batch of tasks drained in a single wakeup. Only called when the pool was created with a batchSize greater than one
+		 *
+		 * @param tasks the tasks, in the order they were added
+		 */
+		default void runBatch(@NotNull List<T> tasks) {
+			for (T t : tasks)
+				run(t);
+		}
 	}
 	
 }
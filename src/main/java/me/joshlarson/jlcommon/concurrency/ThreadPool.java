@@ -33,6 +33,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ThreadPool {
 	
@@ -43,6 +44,7 @@ public class ThreadPool {
 	private final int nThreads;
 	private final String nameFormat;
 	private final AtomicInteger priority;
+	private final AtomicReference<int []> affinity;
 	private ThreadExecutor executor;
 	
 	public ThreadPool(int nThreads, @NotNull String nameFormat) {
@@ -56,16 +58,26 @@ public class ThreadPool {
 		this.nameFormat = nameFormat;
 		this.executor = null;
 		this.priority = new AtomicInteger(Thread.NORM_PRIORITY);
+		this.affinity = new AtomicReference<>(new int[0]);
 	}
 	
 	public void setPriority(int priority) {
 		this.priority.set(priority);
 	}
 	
+	/**
+	 * Sets the CPUs that the threads in this pool may run on. Must be called before the pool is started, and has no effect on platforms where the affinity cannot be set
+	 *
+	 * @param cpus the CPUs to pin the worker threads to, or nothing to clear the affinity
+	 */
+	public void setAffinity(int ... cpus) {
+		this.affinity.set(cpus.clone());
+	}
+	
 	public void start() {
 		if (!running.start())
 			return;
-		executor = new ThreadExecutor(priorityScheduling, nThreads, ThreadUtilities.newThreadFactory(nameFormat, priority.get()));
+		executor = new ThreadExecutor(priorityScheduling, nThreads, ThreadUtilities.newThreadFactory(nameFormat, priority.get(), affinity.get()));
 		executor.start();
 	}
 	
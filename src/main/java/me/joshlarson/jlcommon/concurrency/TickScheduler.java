@@ -0,0 +1,291 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import me.joshlarson.jlcommon.utilities.ThreadUtilities;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs fixed-rate ticks on a {@link ScheduledThreadPool}, measuring each tick against a time budget and applying an {@link OverrunPolicy} whenever a tick runs past the start of the next one
+ */
+public class TickScheduler {
+	
+	private final ScheduledThreadPool threadPool;
+	private volatile OverrunListener overrunListener;
+	
+	public TickScheduler(@NotNull ScheduledThreadPool threadPool) {
+		this.threadPool = threadPool;
+		this.overrunListener = null;
+	}
+	
+	/**
+	 * Sets the listener that is notified whenever a tick exceeds its budget or a tick is missed
+	 *
+	 * @param overrunListener the listener, or null to only record the overrun counters
+	 */
+	public void setOverrunListener(@Nullable OverrunListener overrunListener) {
+		this.overrunListener = overrunListener;
+	}
+	
+	/**
+	 * Schedules a tick with a budget equal to its period
+	 *
+	 * @param name     the name used to identify this tick
+	 * @param period   the time between the start of each tick
+	 * @param unit     the unit of period
+	 * @param policy   what to do when a tick runs past the start of the next one
+	 * @param runnable the tick to run
+	 * @return the scheduled tick, or null if the thread pool is not running
+	 */
+	@Nullable
+	public TickTask schedule(@NotNull String name, long period, @NotNull TimeUnit unit, @NotNull OverrunPolicy policy, @NotNull Runnable runnable) {
+		return schedule(name, period, period, unit, policy, runnable);
+	}
+	
+	/**
+	 * Schedules a tick with a custom budget
+	 *
+	 * @param name     the name used to identify this tick
+	 * @param period   the time between the start of each tick
+	 * @param budget   the maximum time a tick may take before it is reported as an overrun
+	 * @param unit     the unit of period and budget
+	 * @param policy   what to do when a tick runs past the start of the next one
+	 * @param runnable the tick to run
+	 * @return the scheduled tick, or null if the thread pool is not running
+	 */
+	@Nullable
+	public TickTask schedule(@NotNull String name, long period, long budget, @NotNull TimeUnit unit, @NotNull OverrunPolicy policy, @NotNull Runnable runnable) {
+		if (period <= 0)
+			throw new IllegalArgumentException("period must be positive");
+		if (!threadPool.isRunning())
+			return null;
+		TickTask task = new TickTask(name, unit.toNanos(period), unit.toNanos(budget), policy, runnable);
+		task.scheduleFirst();
+		return task;
+	}
+	
+	public enum OverrunPolicy {
+		/** Missed ticks are dropped, and the next tick runs at the next period boundary */
+		SKIP,
+		/** Missed ticks run back-to-back until caught up, up to {@link TickTask#setMaxCatchUpTicks(int)} ticks. Anything beyond that is dropped */
+		CATCH_UP,
+		/** The overrunning tick stretches the current period, and the schedule restarts from the end of that tick */
+		STRETCH
+	}
+	
+	public interface OverrunListener {
+		
+		/**
+		 * Called after a tick that either exceeded its budget or caused later ticks to be missed
+		 *
+		 * @param task          the tick that overran
+		 * @param durationNanos how long the tick took
+		 * @param missedTicks   the number of ticks dropped as a result
+		 */
+		void onOverrun(@NotNull TickTask task, long durationNanos, long missedTicks);
+	}
+	
+	public class TickTask {
+		
+		private final String name;
+		private final long period;
+		private final long budget;
+		private final OverrunPolicy policy;
+		private final Runnable runnable;
+		private final Runnable tickRunnable;
+		private final TimeHistogram durations;
+		private final TimeHistogram lateness;
+		private final AtomicLong ticks;
+		private final AtomicLong overruns;
+		private final AtomicLong missedTicks;
+		private volatile int maxCatchUpTicks;
+		private volatile boolean cancelled;
+		private volatile ScheduledFuture<?> future;
+		private long nextTick;
+		private int catchUpTicks;
+		
+		private TickTask(@NotNull String name, long period, long budget, @NotNull OverrunPolicy policy, @NotNull Runnable runnable) {
+			this.name = name;
+			this.period = period;
+			this.budget = budget;
+			this.policy = policy;
+			this.runnable = runnable;
+			this.tickRunnable = this::tick;
+			this.durations = new TimeHistogram();
+			this.lateness = new TimeHistogram();
+			this.ticks = new AtomicLong(0);
+			this.overruns = new AtomicLong(0);
+			this.missedTicks = new AtomicLong(0);
+			this.maxCatchUpTicks = 5;
+			this.cancelled = false;
+			this.future = null;
+			this.nextTick = 0;
+			this.catchUpTicks = 0;
+		}
+		
+		@NotNull
+		public String getName() {
+			return name;
+		}
+		
+		@NotNull
+		public OverrunPolicy getPolicy() {
+			return policy;
+		}
+		
+		/**
+		 * Sets the maximum number of consecutive late ticks that run back-to-back under {@link OverrunPolicy#CATCH_UP}
+		 *
+		 * @param maxCatchUpTicks the maximum number of catch-up ticks (default: 5)
+		 */
+		public void setMaxCatchUpTicks(int maxCatchUpTicks) {
+			this.maxCatchUpTicks = Math.max(0, maxCatchUpTicks);
+		}
+		
+		/**
+		 * Returns the distribution of how long each tick took to run
+		 *
+		 * @return the tick duration histogram
+		 */
+		@NotNull
+		public TimeHistogram getDurations() {
+			return durations;
+		}
+		
+		/**
+		 * Returns the distribution of how late each tick started compared to its place in the schedule
+		 *
+		 * @return the tick lateness histogram
+		 */
+		@NotNull
+		public TimeHistogram getLateness() {
+			return lateness;
+		}
+		
+		public long getTickCount() {
+			return ticks.get();
+		}
+		
+		/**
+		 * Returns the number of ticks that took longer than the budget
+		 *
+		 * @return the overrun count
+		 */
+		public long getOverrunCount() {
+			return overruns.get();
+		}
+		
+		/**
+		 * Returns the number of ticks that were dropped by the overrun policy
+		 *
+		 * @return the missed tick count
+		 */
+		public long getMissedTicks() {
+			return missedTicks.get();
+		}
+		
+		public void cancel() {
+			cancelled = true;
+			ScheduledFuture<?> future = this.future;
+			if (future != null)
+				future.cancel(false);
+		}
+		
+		public boolean isCancelled() {
+			return cancelled;
+		}
+		
+		@Override
+		public String toString() {
+			return "TickTask[name=" + name + " ticks=" + ticks.get() + " overruns=" + overruns.get() + " missed=" + missedTicks.get() + "]";
+		}
+		
+		private void scheduleFirst() {
+			nextTick = System.nanoTime() + period;
+			future = threadPool.schedule(period, TimeUnit.NANOSECONDS, tickRunnable);
+		}
+		
+		private void tick() {
+			if (cancelled)
+				return;
+			long start = System.nanoTime();
+			lateness.record(start - nextTick);
+			ThreadUtilities.safeRun(runnable);
+			long end = System.nanoTime();
+			long duration = end - start;
+			durations.record(duration);
+			ticks.incrementAndGet();
+			
+			long missed = advance(end);
+			if (duration > budget)
+				overruns.incrementAndGet();
+			if (missed > 0)
+				missedTicks.addAndGet(missed);
+			OverrunListener listener = overrunListener;
+			if (listener != null && (duration > budget || missed > 0))
+				listener.onOverrun(this, duration, missed);
+			
+			if (!cancelled)
+				future = threadPool.schedule(Math.max(0, nextTick - System.nanoTime()), TimeUnit.NANOSECONDS, tickRunnable);
+		}
+		
+		/**
+		 * Moves nextTick forward according to the overrun policy
+		 *
+		 * @param now the time the last tick finished
+		 * @return the number of ticks that were dropped
+		 */
+		private long advance(long now) {
+			nextTick += period;
+			if (now <= nextTick) {
+				catchUpTicks = 0;
+				return 0;
+			}
+			long late = (now - nextTick) / period + 1;
+			switch (policy) {
+				case SKIP:
+					nextTick += late * period;
+					return late;
+				case CATCH_UP: {
+					long allowed = Math.max(0, maxCatchUpTicks - catchUpTicks);
+					long dropped = Math.max(0, late - allowed);
+					nextTick += dropped * period;
+					catchUpTicks = (dropped < late) ? catchUpTicks + 1 : 0;
+					return dropped;
+				}
+				case STRETCH:
+				default:
+					nextTick = now;
+					return 0;
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,168 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of nanosecond durations. Values are grouped into power-of-two buckets, so recording is constant time and never allocates.
+ */
+public class TimeHistogram {
+	
+	private static final int BUCKETS = 64;
+	
+	private final AtomicLongArray buckets;
+	private final LongAdder count;
+	private final LongAdder total;
+	private final AtomicLong min;
+	private final AtomicLong max;
+	
+	public TimeHistogram() {
+		this.buckets = new AtomicLongArray(BUCKETS);
+		this.count = new LongAdder();
+		this.total = new LongAdder();
+		this.min = new AtomicLong(Long.MAX_VALUE);
+		this.max = new AtomicLong(0);
+	}
+	
+	/**
+	 * Records a single duration. Negative durations are recorded as zero
+	 *
+	 * @param nanos the duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		buckets.incrementAndGet(getBucket(nanos));
+		count.increment();
+		total.add(nanos);
+		if (nanos < min.get())
+			min.accumulateAndGet(nanos, Math::min);
+		if (nanos > max.get())
+			max.accumulateAndGet(nanos, Math::max);
+	}
+	
+	/**
+	 * Clears all recorded durations
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			buckets.set(i, 0);
+		count.reset();
+		total.reset();
+		min.set(Long.MAX_VALUE);
+		max.set(0);
+	}
+	
+	public long getCount() {
+		return count.sum();
+	}
+	
+	public long getTotal(@NotNull TimeUnit unit) {
+		return unit.convert(total.sum(), TimeUnit.NANOSECONDS);
+	}
+	
+	public long getMin(@NotNull TimeUnit unit) {
+		long min = this.min.get();
+		return min == Long.MAX_VALUE ? 0 : unit.convert(min, TimeUnit.NANOSECONDS);
+	}
+	
+	public long getMax(@NotNull TimeUnit unit) {
+		return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Returns the average duration in nanoseconds
+	 *
+	 * @return the average duration, or 0 if nothing has been recorded
+	 */
+	public double getAverage() {
+		long count = this.count.sum();
+		return count == 0 ? 0 : total.sum() / (double) count;
+	}
+	
+	/**
+	 * Returns an upper bound for the specified percentile. Because values are grouped into power-of-two buckets, the result is accurate to within a factor of two
+	 *
+	 * @param percentile the percentile between 0 and 100
+	 * @param unit       the unit of the result
+	 * @return the upper bound of the bucket containing the percentile
+	 */
+	public long getPercentile(double percentile, @NotNull TimeUnit unit) {
+		long [] snapshot = getBucketCounts();
+		long count = 0;
+		for (long bucket : snapshot)
+			count += bucket;
+		if (count == 0)
+			return 0;
+		long target = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= target && seen > 0)
+				return unit.convert(Math.min(getBucketUpperBound(i), max.get()), TimeUnit.NANOSECONDS);
+		}
+		return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Returns a copy of the bucket counts, where bucket i contains durations that are less than or equal to {@link #getBucketUpperBound(int)}
+	 *
+	 * @return the bucket counts
+	 */
+	@NotNull
+	public long [] getBucketCounts() {
+		long [] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			snapshot[i] = buckets.get(i);
+		return snapshot;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("TimeHistogram[count=%d avg=%.1fus p50=%dus p99=%dus max=%dus]", getCount(), getAverage() / 1E3, getPercentile(50, TimeUnit.MICROSECONDS), getPercentile(99, TimeUnit.MICROSECONDS), getMax(TimeUnit.MICROSECONDS));
+	}
+	
+	/**
+	 * Returns the largest duration, in nanoseconds, that is recorded into the specified bucket
+	 *
+	 * @param bucket the bucket index
+	 * @return the inclusive upper bound of the bucket
+	 */
+	public static long getBucketUpperBound(int bucket) {
+		if (bucket >= BUCKETS - 1)
+			return Long.MAX_VALUE;
+		return (1L << bucket) - 1;
+	}
+	
+	private static int getBucket(long nanos) {
+		return 64 - Long.numberOfLeadingZeros(nanos);
+	}
+	
+}
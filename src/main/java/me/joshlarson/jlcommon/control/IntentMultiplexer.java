@@ -23,64 +23,122 @@
  ***********************************************************************************/
 package me.joshlarson.jlcommon.control;
 
+import me.joshlarson.jlcommon.control.ServiceHandlers.MultiplexerMethod;
 import me.joshlarson.jlcommon.log.Log;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Calls the {@link Multiplexer} method of a service whose last parameter matches the class of the last argument. If no method was declared for that exact class, the closest
+ * superclass or interface is used instead
+ */
 public class IntentMultiplexer {
 	
-	private final Map<Class<?>, Method> methods;
+	private final Map<Class<?>, MultiplexerMethod> methods;
+	private final Map<Class<?>, Optional<MultiplexerMethod>> dispatchTable;
 	private final Service service;
 	private final int expectedArgs;
 	
 	public IntentMultiplexer(@NotNull Service service, Class<?>... parameters) {
 		this.methods = new HashMap<>();
+		this.dispatchTable = new ConcurrentHashMap<>();
 		this.service = service;
 		this.expectedArgs = parameters.length;
 		
 		getMethods(methods, service.getClass(), parameters);
 	}
 	
+	public void call(Object arg) {
+		if (expectedArgs != 1)
+			throw new IllegalArgumentException("Invalid arguments!");
+		MultiplexerMethod method = lookup(arg.getClass());
+		if (method == null)
+			return;
+		try {
+			method.invoke(service, arg);
+		} catch (Throwable t) {
+			Log.e(t);
+		}
+	}
+	
+	public void call(Object arg1, Object arg2) {
+		if (expectedArgs != 2)
+			throw new IllegalArgumentException("Invalid arguments!");
+		MultiplexerMethod method = lookup(arg2.getClass());
+		if (method == null)
+			return;
+		try {
+			method.invoke(service, arg1, arg2);
+		} catch (Throwable t) {
+			Log.e(t);
+		}
+	}
+	
 	public void call(Object... args) {
 		if (args.length != expectedArgs)
 			throw new IllegalArgumentException("Invalid arguments!");
+		MultiplexerMethod method = lookup(args[args.length-1].getClass());
+		if (method == null)
+			return;
 		try {
-			Method method = methods.get(args[args.length-1].getClass());
+			method.invoke(service, args);
+		} catch (Throwable t) {
+			Log.e(t);
+		}
+	}
+	
+	@Nullable
+	private MultiplexerMethod lookup(Class<?> argClass) {
+		Optional<MultiplexerMethod> method = dispatchTable.get(argClass);
+		if (method == null)
+			method = dispatchTable.computeIfAbsent(argClass, this::resolve);
+		return method.orElse(null);
+	}
+	
+	/**
+	 * Finds the method for the closest match to the argument class: the class itself, then each superclass, and finally any interface they implement
+	 */
+	@NotNull
+	private Optional<MultiplexerMethod> resolve(Class<?> argClass) {
+		for (Class<?> klass = argClass; klass != null; klass = klass.getSuperclass()) {
+			MultiplexerMethod method = methods.get(klass);
 			if (method != null)
-				method.invoke(service, args);
-		} catch (InvocationTargetException | IllegalAccessException e) {
-			Log.e(e);
+				return Optional.of(method);
 		}
+		Deque<Class<?>> interfaces = new ArrayDeque<>();
+		for (Class<?> klass = argClass; klass != null; klass = klass.getSuperclass())
+			interfaces.addAll(Arrays.asList(klass.getInterfaces()));
+		Set<Class<?>> visited = new HashSet<>();
+		while (!interfaces.isEmpty()) {
+			Class<?> next = interfaces.poll();
+			if (!visited.add(next))
+				continue;
+			MultiplexerMethod method = methods.get(next);
+			if (method != null)
+				return Optional.of(method);
+			interfaces.addAll(Arrays.asList(next.getInterfaces()));
+		}
+		return Optional.empty();
 	}
 	
-	@SuppressWarnings("unchecked")
-	private static void getMethods(Map<Class<?>, Method> methods, Class<? extends Service> klass, Class<?>... parameters) {
+	private static void getMethods(Map<Class<?>, MultiplexerMethod> methods, Class<? extends Service> klass, Class<?>... parameters) {
+		List<MultiplexerMethod> declared = ServiceHandlers.of(klass).getMultiplexers();
 		method_loop:
-		for (Method m : klass.getDeclaredMethods()) {
-			if (!m.isAnnotationPresent(Multiplexer.class))
-				continue;
-			
-			Parameter[] params = m.getParameters();
-			if (params.length != parameters.length)
+		for (MultiplexerMethod m : declared) {
+			if (m.getParameterCount() != parameters.length)
 				continue;
-			for (int i = 0; i < params.length; i++) {
-				if (!parameters[i].isAssignableFrom(params[i].getType()))
+			for (int i = 0; i < parameters.length; i++) {
+				if (!parameters[i].isAssignableFrom(m.getParameter(i)))
 					continue method_loop;
 			}
 			
-			m.setAccessible(true);
-			methods.put(params[params.length-1].getType(), m);
+			methods.put(m.getParameter(parameters.length-1), m);
 		}
-		Class<?> superKlass = klass.getSuperclass();
-		if (Service.class.isAssignableFrom(superKlass))
-			getMethods(methods, (Class<? extends Service>) superKlass, parameters);
 	}
 	
 	@Retention(RetentionPolicy.RUNTIME)
@@ -0,0 +1,73 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.control;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Direct-call registrations for the {@link IntentHandler} and {@link IntentMultiplexer.Multiplexer} methods declared by a single Service class. Implementations are generated at
+ * compile time by the intent handler annotation processor, and are named after the binary name of the service with an "_IntentRegistry" suffix. Classes without a generated registry
+ * are scanned with reflection instead.
+ *
+ * @param <S> the service class
+ */
+public interface IntentRegistry<S extends Service> {
+	
+	/**
+	 * Registers each handler declared directly by the service class. Inherited handlers are registered by the registry of the superclass
+	 *
+	 * @param registrar the registrar to add the handlers to
+	 */
+	void register(@NotNull Registrar<S> registrar);
+	
+	interface Registrar<S> {
+		
+		void intentHandler(@NotNull String name, @NotNull Class<? extends Intent> intent, @NotNull BiConsumer<S, Intent> handler);
+		
+		void multiplexer(@NotNull String name, @NotNull Class<?> [] parameters, @NotNull MultiplexerInvoker<S> invoker);
+		
+	}
+	
+	/**
+	 * Calls a multiplexer method. Implementations for one and two parameter methods should also override the matching fixed-arity method, which avoids allocating an argument array
+	 *
+	 * @param <S> the service class
+	 */
+	interface MultiplexerInvoker<S> {
+		
+		void invoke(@NotNull S service, @NotNull Object [] args);
+		
+		default void invoke(@NotNull S service, Object arg) {
+			invoke(service, new Object[]{arg});
+		}
+		
+		default void invoke(@NotNull S service, Object arg1, Object arg2) {
+			invoke(service, new Object[]{arg1, arg2});
+		}
+		
+	}
+	
+}
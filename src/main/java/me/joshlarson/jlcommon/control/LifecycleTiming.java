@@ -0,0 +1,131 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.control;
+
+import me.joshlarson.jlcommon.control.Manager.LifecyclePhase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long a single lifecycle phase took for a service, along with the timings of its children if the service is a {@link Manager}
+ */
+public final class LifecycleTiming {
+	
+	private final Class<? extends ServiceBase> service;
+	private final LifecyclePhase phase;
+	private final long durationNanos;
+	private final List<LifecycleTiming> children;
+	
+	LifecycleTiming(@NotNull Class<? extends ServiceBase> service, @NotNull LifecyclePhase phase, long durationNanos, @NotNull List<LifecycleTiming> children) {
+		this.service = service;
+		this.phase = phase;
+		this.durationNanos = durationNanos;
+		this.children = List.copyOf(children);
+	}
+	
+	@NotNull
+	public Class<? extends ServiceBase> getService() {
+		return service;
+	}
+	
+	@NotNull
+	public LifecyclePhase getPhase() {
+		return phase;
+	}
+	
+	public long getDuration(@NotNull TimeUnit unit) {
+		return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Returns the time spent in this service itself, excluding its children. Children that ran in parallel can add up to more than their parent, in which case this is zero
+	 *
+	 * @param unit the unit of time
+	 * @return the time spent outside of the children
+	 */
+	public long getSelfDuration(@NotNull TimeUnit unit) {
+		long childNanos = 0;
+		for (LifecycleTiming child : children)
+			childNanos += child.durationNanos;
+		return unit.convert(Math.max(0, durationNanos - childNanos), TimeUnit.NANOSECONDS);
+	}
+	
+	@NotNull
+	public List<LifecycleTiming> getChildren() {
+		return children;
+	}
+	
+	/**
+	 * Returns this tree in the folded stack format read by flame graph tools: one line per service, with the semicolon-separated path from the root and the self time in microseconds
+	 *
+	 * @return the folded stacks, one per line
+	 */
+	@NotNull
+	public String toFoldedStacks() {
+		StringBuilder str = new StringBuilder();
+		appendFoldedStacks(str, phase.getName());
+		return str.toString();
+	}
+	
+	/**
+	 * Writes this tree in the folded stack format to the specified file
+	 *
+	 * @param file the file to write to
+	 * @throws IOException if the file could not be written
+	 * @see #toFoldedStacks()
+	 */
+	public void writeFoldedStacks(@NotNull Path file) throws IOException {
+		Files.writeString(file, toFoldedStacks(), StandardCharsets.UTF_8);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder();
+		appendTree(str, 0);
+		return str.toString();
+	}
+	
+	private void appendFoldedStacks(StringBuilder str, String prefix) {
+		String stack = prefix + ';' + service.getSimpleName();
+		str.append(stack).append(' ').append(getSelfDuration(TimeUnit.MICROSECONDS)).append('\n');
+		for (LifecycleTiming child : children)
+			child.appendFoldedStacks(str, stack);
+	}
+	
+	private void appendTree(StringBuilder str, int depth) {
+		for (int i = 0; i < depth; i++)
+			str.append("  ");
+		str.append(String.format(Locale.US, "%s %s %.3fms%n", service.getSimpleName(), phase.getName(), durationNanos / 1E6));
+		for (LifecycleTiming child : children)
+			child.appendTree(str, depth + 1);
+	}
+	
+}
@@ -23,12 +23,21 @@
  ***********************************************************************************/
 package me.joshlarson.jlcommon.control;
 
-import me.joshlarson.jlcommon.concurrency.Delay;
+import me.joshlarson.jlcommon.concurrency.SmartLock;
+import me.joshlarson.jlcommon.concurrency.ThreadPool;
 import me.joshlarson.jlcommon.log.Log;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
 /**
  * A Manager is a class that encourages a tree structure to services
@@ -38,11 +47,28 @@ public abstract class Manager implements ServiceBase {
 	private final List<ServiceBase> children;
 	private final List<ServiceBase> initialized;
 	private final List<ServiceBase> started;
+	private final Map<Class<? extends ServiceBase>, LazyChild> lazyChildren;
+	private final List<ServiceBase> lazyInstances;
+	private final AtomicReference<IntentManager> intentManager;
+	private final Map<ServiceBase, long []> timings;
+	private final long [] phaseDurations;
+	private final int [][] dependencies;
+	private final int [][] dependents;
+	private final int [] order;
+	private final boolean ordered;
+	private final int threads;
+	private volatile Runnable operationalListener;
+	private LifecyclePhase lifecycle;
 	
 	public Manager() {
 		children = new ArrayList<>();
-		initialized = new ArrayList<>();
-		started = new ArrayList<>();
+		initialized = new CopyOnWriteArrayList<>();
+		started = new CopyOnWriteArrayList<>();
+		lazyChildren = new LinkedHashMap<>();
+		lazyInstances = new CopyOnWriteArrayList<>();
+		intentManager = new AtomicReference<>(null);
+		timings = new ConcurrentHashMap<>();
+		phaseDurations = new long[LifecyclePhase.values().length];
 		
 		ManagerStructure annotation = getClass().getAnnotation(ManagerStructure.class);
 		if (annotation == null)
@@ -60,6 +86,27 @@ public abstract class Manager implements ServiceBase {
 				throw new RuntimeException(e);
 			}
 		}
+		for (Class<? extends ServiceBase> service : annotation.lazyChildren()) {
+			if (service == null)
+				throw new NullPointerException("Child is null!");
+			try {
+				lazyChildren.put(service, new LazyChild(service.getConstructor()));
+			} catch (NoSuchMethodException e) {
+				throw new ManagerCreationException("No valid default constructor for " + service.getName());
+			}
+		}
+		for (ServiceBase child : children)
+			createTimings(child);
+		this.operationalListener = null;
+		this.lifecycle = null;
+		Arrays.fill(phaseDurations, -1);
+		dependencies = resolveDependencies(annotation.dependencies());
+		dependents = invertDependencies(dependencies);
+		order = sortTopologically(dependencies);
+		ordered = annotation.dependencies().length > 0;
+		threads = annotation.threads();
+		if (threads <= 0)
+			throw new ManagerCreationException("Manager must have at least one thread");
 	}
 	
 	/**
@@ -69,21 +116,10 @@ public abstract class Manager implements ServiceBase {
 	 */
 	@Override
 	public final boolean initialize() {
-		for (ServiceBase child : children) {
-			try {
-				Log.t("%s: Initializing %s...", getClass().getSimpleName(), child.getClass().getSimpleName());
-				if (!child.initialize()) {
-					Log.e(child.getClass().getSimpleName() + " failed to initialize!");
-					return false;
-				}
-			} catch (Throwable t) {
-				Log.e("Caught exception during initialize. Service: %s", child.getClass().getName());
-				Log.e(t);
-				return false;
-			}
-			initialized.add(child);
-		}
-		return true;
+		long start = System.nanoTime();
+		boolean success = runPhase(LifecyclePhase.INITIALIZE, initialized);
+		phaseDurations[LifecyclePhase.INITIALIZE.ordinal()] = System.nanoTime() - start;
+		return success;
 	}
 	
 	/**
@@ -93,69 +129,38 @@ public abstract class Manager implements ServiceBase {
 	 */
 	@Override
 	public final boolean start() {
-		for (ServiceBase child : children) {
-			try {
-				Log.t("%s: Starting %s...", getClass().getSimpleName(), child.getClass().getSimpleName());
-				if (!child.start()) {
-					Log.e(child.getClass().getSimpleName() + " failed to start!");
-					return false;
-				}
-			} catch (Throwable t) {
-				Log.e("Caught exception during start. Service: %s", child.getClass().getName());
-				Log.e(t);
-				return false;
-			}
-			started.add(child);
-		}
-		return true;
+		long start = System.nanoTime();
+		boolean success = runPhase(LifecyclePhase.START, started);
+		phaseDurations[LifecyclePhase.START.ordinal()] = System.nanoTime() - start;
+		if (success)
+			logTimings();
+		return success;
 	}
 	
 	/**
-	 * Stops this manager and all children
+	 * Stops this manager and all children. If dependencies are declared, children are stopped in the reverse order they were started
 	 *
 	 * @return TRUE if stopping was successful, FALSE otherwise
 	 */
 	@Override
 	public final boolean stop() {
-		boolean success = true;
-		for (ServiceBase child : started) {
-			try {
-				Log.t("%s: Stopping %s...", getClass().getSimpleName(), child.getClass().getSimpleName());
-				if (!child.stop()) {
-					Log.e(child.getClass().getSimpleName() + " failed to stop!");
-					success = false;
-				}
-			} catch (Throwable t) {
-				Log.e("Caught exception during stop. Service: %s", child.getClass().getName());
-				Log.e(t);
-				success = false;
-			}
-		}
+		long start = System.nanoTime();
+		boolean success = runShutdownPhase(LifecyclePhase.STOP, started);
+		phaseDurations[LifecyclePhase.STOP.ordinal()] = System.nanoTime() - start;
 		started.clear();
 		return success;
 	}
 	
 	/**
-	 * Terminates this manager and all children
+	 * Terminates this manager and all children. If dependencies are declared, children are terminated in the reverse order they were initialized
 	 *
 	 * @return TRUE if termination was successful, FALSE otherwise
 	 */
 	@Override
 	public final boolean terminate() {
-		boolean success = true;
-		for (ServiceBase child : initialized) {
-			try {
-				Log.t("%s: Terminating %s...", getClass().getSimpleName(), child.getClass().getSimpleName());
-				if (!child.terminate()) {
-					Log.e(child.getClass().getSimpleName() + " failed to terminate!");
-					success = false;
-				}
-			} catch (Throwable t) {
-				Log.e("Caught exception during terminate. Service: %s", child.getClass().getName());
-				Log.e(t);
-				success = false;
-			}
-		}
+		long start = System.nanoTime();
+		boolean success = runShutdownPhase(LifecyclePhase.TERMINATE, initialized);
+		phaseDurations[LifecyclePhase.TERMINATE.ordinal()] = System.nanoTime() - start;
 		initialized.clear();
 		return success;
 	}
@@ -167,8 +172,8 @@ public abstract class Manager implements ServiceBase {
 	 */
 	@Override
 	public final boolean isOperational() {
-		for (ServiceBase child : children) {
-			if (!child.isOperational()) {
+		for (ServiceBase child : getCreatedChildren()) {
+			if (!child.isOperational() || child.hasNotifiedNotOperational()) {
 				Log.e("Child '%s' is no longer operational.", child.getClass().getName());
 				return false;
 			}
@@ -183,13 +188,87 @@ public abstract class Manager implements ServiceBase {
 	 */
 	@Override
 	public void setIntentManager(IntentManager intentManager) {
+		IntentManager prev = this.intentManager.getAndSet(intentManager);
 		for (ServiceBase s : children) {
 			s.setIntentManager(intentManager);
 		}
+		for (LazyChild lazy : lazyChildren.values()) {
+			lazy.setIntentManager(prev, intentManager);
+		}
 	}
 	
 	/**
-	 * Returns a list of each child in an unmodifiable list
+	 * Determines whether or not any child has reported that it is no longer operational
+	 *
+	 * @return TRUE if a child reported that it is no longer operational, FALSE otherwise
+	 */
+	@Override
+	public final boolean hasNotifiedNotOperational() {
+		for (ServiceBase child : getCreatedChildren()) {
+			if (child.hasNotifiedNotOperational())
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Sets the operational listener for each child in the manager
+	 *
+	 * @param listener the listener, or null to remove the current listener
+	 */
+	@Override
+	public void setOperationalListener(@Nullable Runnable listener) {
+		this.operationalListener = listener;
+		for (ServiceBase s : getCreatedChildren()) {
+			s.setOperationalListener(listener);
+		}
+	}
+	
+	/**
+	 * Returns how long the most recent run of the lifecycle phase took for this manager and each of its children, recursing into child managers. Children that did not run during that
+	 * phase, such as those after a failed child, are left out
+	 *
+	 * @param phase the lifecycle phase
+	 * @return the timing tree rooted at this manager
+	 */
+	@NotNull
+	public final LifecycleTiming getLifecycleTiming(@NotNull LifecyclePhase phase) {
+		List<LifecycleTiming> childTimings = new ArrayList<>();
+		for (ServiceBase child : getCreatedChildren()) {
+			long duration = timings.get(child)[phase.ordinal()];
+			if (duration < 0)
+				continue;
+			if (child instanceof Manager)
+				childTimings.add(((Manager) child).getLifecycleTiming(phase));
+			else
+				childTimings.add(new LifecycleTiming(child.getClass(), phase, duration, List.of()));
+		}
+		return new LifecycleTiming(getClass(), phase, Math.max(0, phaseDurations[phase.ordinal()]), childTimings);
+	}
+	
+	/**
+	 * Returns the child of the specified type. If it is a lazy child that has not been created yet, it is created and brought up to the same lifecycle phase as this manager
+	 *
+	 * @param service the class of the child
+	 * @param <T>     the type of the child
+	 * @return the child
+	 * @throws IllegalArgumentException if the class is not one of this manager's children
+	 * @throws ManagerCreationException if a lazy child fails to initialize or start
+	 */
+	@NotNull
+	public final <T extends ServiceBase> T getChild(@NotNull Class<T> service) {
+		for (ServiceBase child : children) {
+			if (child.getClass() == service)
+				return service.cast(child);
+		}
+		LazyChild lazy = lazyChildren.get(service);
+		if (lazy == null)
+			throw new IllegalArgumentException(service.getName() + " is not a child of " + getClass().getName());
+		return service.cast(lazy.get());
+	}
+	
+	/**
+	 * Returns a list of each child in an unmodifiable list. Lazy children are not included
 	 *
 	 * @return the unmodifiable list of children
 	 */
@@ -274,27 +353,50 @@ public abstract class Manager implements ServiceBase {
 	}
 	
 	/**
-	 * Runs each of the services in the collection with the specified periodicSleepTime
+	 * Runs each of the services in the collection until one is no longer operational. Services that notify their operational listener stop the run loop immediately, while the
+	 * periodicSleepTime only bounds how long it takes to notice services that do not
 	 *
 	 * @param services          the collection of services
 	 * @param periodicSleepTime the time to sleep between isOperational calls
 	 */
 	public static void run(Collection<? extends ServiceBase> services, long periodicSleepTime) {
-		while (Delay.sleepMilli(periodicSleepTime)) {
-			for (ServiceBase s : services) {
-				try {
-					if (!s.isOperational()) {
-						Log.e("Manager '%s' is no longer operational.", s.getClass().getName());
-						return;
-					}
-				} catch (Throwable t) {
-					Log.e("Caught exception during isOperational. Service: %s", s.getClass().getName());
-					Log.e(t);
+		SmartLock healthLock = new SmartLock();
+		AtomicBoolean notified = new AtomicBoolean(true); // check once up front, in case a service failed before its listener was set
+		Runnable listener = () -> healthLock.updateAndSignalAll(() -> notified.set(true));
+		for (ServiceBase s : services)
+			s.setOperationalListener(listener);
+		try {
+			long periodNanos = TimeUnit.MILLISECONDS.toNanos(periodicSleepTime);
+			long nextCheck = System.nanoTime() + periodNanos;
+			while (true) {
+				if (!healthLock.awaitUntil(notified::get, nextCheck - System.nanoTime(), TimeUnit.NANOSECONDS))
+					nextCheck += periodNanos;
+				notified.set(false);
+				if (!isOperational(services))
 					return;
+			}
+		} catch (InterruptedException e) {
+			// Interrupted - time to shut down
+		} finally {
+			for (ServiceBase s : services)
+				s.setOperationalListener(null);
+		}
+	}
+	
+	private static boolean isOperational(Collection<? extends ServiceBase> services) {
+		for (ServiceBase s : services) {
+			try {
+				if (!s.isOperational() || s.hasNotifiedNotOperational()) {
+					Log.e("Manager '%s' is no longer operational.", s.getClass().getName());
+					return false;
 				}
+			} catch (Throwable t) {
+				Log.e("Caught exception during isOperational. Service: %s", s.getClass().getName());
+				Log.e(t);
+				return false;
 			}
 		}
-		Delay.clearInterrupted();
+		return true;
 	}
 	
 	/**
@@ -316,6 +418,370 @@ public abstract class Manager implements ServiceBase {
 		Log.i("Stopped.");
 	}
 	
+	private boolean runPhase(LifecyclePhase phase, List<ServiceBase> completed) {
+		resetTimings(phase);
+		setLifecycle(phase);
+		if (!runEagerPhase(phase, completed))
+			return false;
+		for (ServiceBase lazy : lazyInstances) {
+			if (completed.contains(lazy))
+				continue; // created during this phase, and already caught up
+			if (!runChild(lazy, phase))
+				return false;
+			completed.add(lazy);
+		}
+		return true;
+	}
+	
+	private boolean runEagerPhase(LifecyclePhase phase, List<ServiceBase> completed) {
+		if (threads == 1 || children.size() <= 1) {
+			for (int index : order) {
+				ServiceBase child = children.get(index);
+				if (!runChild(child, phase))
+					return false;
+				completed.add(child);
+			}
+			return true;
+		}
+		ThreadPool pool = new ThreadPool(Math.min(threads, children.size()), getClass().getSimpleName() + "-" + phase.getName() + "-%d");
+		pool.start();
+		try {
+			return new ParallelPhase(phase, completed, pool).run();
+		} catch (InterruptedException e) {
+			Log.e("%s: Interrupted while waiting for children to %s", getClass().getSimpleName(), phase.getName());
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			pool.stop(true);
+			pool.awaitTermination(1000);
+		}
+	}
+	
+	private boolean runShutdownPhase(LifecyclePhase phase, List<ServiceBase> completed) {
+		resetTimings(phase);
+		setLifecycle(phase);
+		List<ServiceBase> shutdownOrder = new ArrayList<>(completed);
+		if (ordered)
+			Collections.reverse(shutdownOrder);
+		boolean success = true;
+		for (ServiceBase child : shutdownOrder) {
+			if (!runChild(child, phase))
+				success = false;
+		}
+		return success;
+	}
+	
+	private boolean runChild(ServiceBase child, LifecyclePhase phase) {
+		try {
+			Log.t("%s: %s %s...", getClass().getSimpleName(), phase.getProgressive(), child.getClass().getSimpleName());
+			long start = System.nanoTime();
+			boolean success = phase.run(child);
+			timings.get(child)[phase.ordinal()] = System.nanoTime() - start;
+			if (!success) {
+				Log.e(child.getClass().getSimpleName() + " failed to " + phase.getName() + "!");
+				return false;
+			}
+			return true;
+		} catch (Throwable t) {
+			Log.e("Caught exception during %s. Service: %s", phase.getName(), child.getClass().getName());
+			Log.e(t);
+			return false;
+		}
+	}
+	
+	private void setLifecycle(LifecyclePhase phase) {
+		synchronized (lazyInstances) {
+			lifecycle = phase;
+		}
+	}
+	
+	private List<ServiceBase> getCreatedChildren() {
+		if (lazyInstances.isEmpty())
+			return children;
+		List<ServiceBase> created = new ArrayList<>(children);
+		created.addAll(lazyInstances);
+		return created;
+	}
+	
+	private void createTimings(ServiceBase child) {
+		long [] childTimings = new long[LifecyclePhase.values().length];
+		Arrays.fill(childTimings, -1);
+		timings.put(child, childTimings);
+	}
+	
+	private void resetTimings(LifecyclePhase phase) {
+		for (long [] childTimings : timings.values())
+			childTimings[phase.ordinal()] = -1;
+	}
+	
+	private void logTimings() {
+		for (ServiceBase child : children) {
+			long [] nanos = timings.get(child);
+			Log.d("%s: %s initialized in %.3fms and started in %.3fms", getClass().getSimpleName(), child.getClass().getSimpleName(), nanos[LifecyclePhase.INITIALIZE.ordinal()] / 1E6, nanos[LifecyclePhase.START.ordinal()] / 1E6);
+		}
+	}
+	
+	private int [][] resolveDependencies(ManagerStructure.Dependency [] declared) {
+		List<List<Integer>> edges = new ArrayList<>();
+		for (int i = 0; i < children.size(); i++)
+			edges.add(new ArrayList<>());
+		for (ManagerStructure.Dependency dependency : declared) {
+			List<Integer> serviceEdges = edges.get(indexOfChild(dependency.service()));
+			for (Class<? extends ServiceBase> dependsOn : dependency.dependsOn())
+				serviceEdges.add(indexOfChild(dependsOn));
+		}
+		int [][] resolved = new int[children.size()][];
+		for (int i = 0; i < resolved.length; i++)
+			resolved[i] = edges.get(i).stream().mapToInt(Integer::intValue).distinct().toArray();
+		return resolved;
+	}
+	
+	private int indexOfChild(Class<? extends ServiceBase> service) {
+		for (int i = 0; i < children.size(); i++) {
+			if (children.get(i).getClass() == service)
+				return i;
+		}
+		throw new ManagerCreationException(getClass().getName() + " declares a dependency on " + service.getName() + ", which is not one of its children");
+	}
+	
+	private int [] sortTopologically(int [][] dependencies) {
+		int [] remaining = new int[dependencies.length];
+		for (int i = 0; i < dependencies.length; i++)
+			remaining[i] = dependencies[i].length;
+		int [] sorted = new int[dependencies.length];
+		boolean [] placed = new boolean[dependencies.length];
+		for (int position = 0; position < sorted.length; position++) {
+			int next = -1;
+			for (int i = 0; i < remaining.length && next == -1; i++) {
+				if (!placed[i] && remaining[i] == 0)
+					next = i;
+			}
+			if (next == -1) {
+				StringJoiner cycle = new StringJoiner(", ");
+				for (int i = 0; i < placed.length; i++) {
+					if (!placed[i])
+						cycle.add(children.get(i).getClass().getSimpleName());
+				}
+				throw new ManagerCreationException(getClass().getName() + " has a dependency cycle between: " + cycle);
+			}
+			placed[next] = true;
+			sorted[position] = next;
+			for (int dependent : dependents[next])
+				remaining[dependent]--;
+		}
+		return sorted;
+	}
+	
+	private static int [][] invertDependencies(int [][] dependencies) {
+		List<List<Integer>> edges = new ArrayList<>();
+		for (int i = 0; i < dependencies.length; i++)
+			edges.add(new ArrayList<>());
+		for (int i = 0; i < dependencies.length; i++) {
+			for (int dependency : dependencies[i])
+				edges.get(dependency).add(i);
+		}
+		int [][] inverted = new int[dependencies.length][];
+		for (int i = 0; i < inverted.length; i++)
+			inverted[i] = edges.get(i).stream().mapToInt(Integer::intValue).toArray();
+		return inverted;
+	}
+	
+	/**
+	 * A child that is only created when it is first requested through {@link #getChild(Class)}, or when an intent it handles is broadcast. Intents for lazy services are always
+	 * delivered through a placeholder registration, so that an intent broadcast while the service is being created is neither lost nor delivered twice
+	 */
+	private class LazyChild {
+		
+		private final Constructor<? extends ServiceBase> constructor;
+		private final Set<Class<? extends Intent>> intents;
+		private final Object consumerKey;
+		private volatile ServiceBase instance;
+		
+		public LazyChild(Constructor<? extends ServiceBase> constructor) {
+			Class<? extends ServiceBase> service = constructor.getDeclaringClass();
+			this.constructor = constructor;
+			this.intents = Service.class.isAssignableFrom(service) ? Service.getHandledIntents(service.asSubclass(Service.class)) : Set.of();
+			this.consumerKey = service.getName() + "#<lazy>";
+			this.instance = null;
+		}
+		
+		public void setIntentManager(@Nullable IntentManager prev, @Nullable IntentManager next) {
+			if (prev != null) {
+				for (Class<? extends Intent> intent : intents)
+					prev.unregisterForIntent(intent, consumerKey);
+			}
+			if (next != null) {
+				for (Class<? extends Intent> intent : intents)
+					registerPlaceholder(next, intent);
+			}
+			ServiceBase instance = this.instance;
+			if (instance != null)
+				attach(instance, next);
+		}
+		
+		@NotNull
+		public ServiceBase get() {
+			ServiceBase instance = this.instance;
+			if (instance != null)
+				return instance;
+			synchronized (this) {
+				if (this.instance == null)
+					this.instance = create();
+				return this.instance;
+			}
+		}
+		
+		private <T extends Intent> void registerPlaceholder(@NotNull IntentManager intentManager, @NotNull Class<T> intent) {
+			intentManager.registerForIntent(intent, consumerKey, i -> ((Service) get()).dispatchIntent(i));
+		}
+		
+		private void attach(@NotNull ServiceBase instance, @Nullable IntentManager intentManager) {
+			if (instance instanceof Service)
+				((Service) instance).setIntentManager(intentManager, false);
+			else
+				instance.setIntentManager(intentManager);
+		}
+		
+		@NotNull
+		private ServiceBase create() {
+			ServiceBase created;
+			try {
+				Log.t("%s: Creating lazy child %s...", Manager.this.getClass().getSimpleName(), constructor.getDeclaringClass().getSimpleName());
+				created = constructor.newInstance();
+			} catch (IllegalAccessException | InvocationTargetException | InstantiationException e) {
+				throw new RuntimeException(e);
+			}
+			createTimings(created);
+			attach(created, intentManager.get());
+			Runnable listener = operationalListener;
+			if (listener != null)
+				created.setOperationalListener(listener);
+			
+			// Bring the child up to this manager's phase, re-checking after each step in case the manager moved on in the meantime
+			boolean initializedChild = false;
+			while (true) {
+				synchronized (lazyInstances) {
+					boolean needsInitialize = !initializedChild && (lifecycle == LifecyclePhase.INITIALIZE || lifecycle == LifecyclePhase.START);
+					boolean needsStart = initializedChild && lifecycle == LifecyclePhase.START;
+					if (!needsInitialize && !needsStart) {
+						lazyInstances.add(created);
+						return created;
+					}
+				}
+				if (!initializedChild) {
+					if (!runChild(created, LifecyclePhase.INITIALIZE))
+						throw new ManagerCreationException(created.getClass().getName() + " failed to initialize");
+					initialized.add(created);
+					initializedChild = true;
+				} else {
+					if (!runChild(created, LifecyclePhase.START))
+						throw new ManagerCreationException(created.getClass().getName() + " failed to start");
+					started.add(created);
+					lazyInstances.add(created);
+					return created;
+				}
+			}
+		}
+		
+	}
+	
+	/**
+	 * Runs a phase on every child, starting each child as soon as everything it depends on has finished
+	 */
+	private class ParallelPhase {
+		
+		private final LifecyclePhase phase;
+		private final List<ServiceBase> completed;
+		private final ThreadPool pool;
+		private final SmartLock lock;
+		private final int [] remaining;
+		private int running;
+		private int finished;
+		private boolean failed;
+		
+		public ParallelPhase(LifecyclePhase phase, List<ServiceBase> completed, ThreadPool pool) {
+			this.phase = phase;
+			this.completed = completed;
+			this.pool = pool;
+			this.lock = new SmartLock();
+			this.remaining = new int[dependencies.length];
+			this.running = 0;
+			this.finished = 0;
+			this.failed = false;
+			for (int i = 0; i < remaining.length; i++)
+				remaining[i] = dependencies[i].length;
+		}
+		
+		public boolean run() throws InterruptedException {
+			lock.lock();
+			try {
+				for (int index : order) {
+					if (remaining[index] == 0)
+						submit(index);
+				}
+			} finally {
+				lock.unlock();
+			}
+			lock.awaitUntil(() -> running == 0 && (failed || finished == children.size()));
+			return !failed;
+		}
+		
+		private void submit(int index) {
+			running++;
+			pool.execute(() -> {
+				boolean success = runChild(children.get(index), phase);
+				lock.updateAndSignalAll(() -> onComplete(index, success));
+			});
+		}
+		
+		private void onComplete(int index, boolean success) {
+			running--;
+			if (!success) {
+				failed = true;
+				return;
+			}
+			finished++;
+			completed.add(children.get(index));
+			if (failed)
+				return;
+			for (int dependent : dependents[index]) {
+				if (--remaining[dependent] == 0)
+					submit(dependent);
+			}
+		}
+		
+	}
+	
+	public enum LifecyclePhase {
+		INITIALIZE("initialize", "Initializing", ServiceBase::initialize),
+		START("start", "Starting", ServiceBase::start),
+		STOP("stop", "Stopping", ServiceBase::stop),
+		TERMINATE("terminate", "Terminating", ServiceBase::terminate);
+		
+		private final String name;
+		private final String progressive;
+		private final Predicate<ServiceBase> action;
+		
+		LifecyclePhase(String name, String progressive, Predicate<ServiceBase> action) {
+			this.name = name;
+			this.progressive = progressive;
+			this.action = action;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		String getProgressive() {
+			return progressive;
+		}
+		
+		boolean run(ServiceBase service) {
+			return action.test(service);
+		}
+		
+	}
+	
 	public static class ManagerCreationException extends RuntimeException {
 		
 		ManagerCreationException(String message) {
@@ -25,10 +25,43 @@ package me.joshlarson.jlcommon.control;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
 
 @Retention(value= RetentionPolicy.RUNTIME)
 public @interface ManagerStructure {
 	
 	Class<? extends ServiceBase> [] children();
 	
+	/**
+	 * Children that are only created when first requested through {@link Manager#getChild(Class)}, or when an intent they handle is first broadcast. Once created, they are
+	 * initialized and started to match the manager, and are stopped and terminated along with the other children. Lazy children cannot be part of declared dependencies
+	 *
+	 * @return the lazily created children
+	 */
+	Class<? extends ServiceBase> [] lazyChildren() default {};
+	
+	/**
+	 * Declares which children depend on other children. A child is only initialized and started after everything it depends on, and is stopped and terminated before them
+	 *
+	 * @return the dependencies between children
+	 */
+	Dependency [] dependencies() default {};
+	
+	/**
+	 * The number of threads used to initialize and start independent children at the same time. With a single thread, every child is handled on the calling thread
+	 *
+	 * @return the maximum number of children to initialize or start at once
+	 */
+	int threads() default 1;
+	
+	@Retention(value= RetentionPolicy.RUNTIME)
+	@Target({})
+	@interface Dependency {
+		
+		Class<? extends ServiceBase> service();
+		
+		Class<? extends ServiceBase> [] dependsOn();
+		
+	}
+	
 }
@@ -23,16 +23,11 @@
  ***********************************************************************************/
 package me.joshlarson.jlcommon.control;
 
-import me.joshlarson.jlcommon.log.Log;
+import me.joshlarson.jlcommon.control.ServiceHandlers.IntentHandlerMethod;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.lang.reflect.Parameter;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicReference;
@@ -45,10 +40,16 @@ public abstract class Service implements ServiceBase {
 	
 	private final Map<Class<? extends Intent>, List<Object>> registration;
 	private final AtomicReference <IntentManager> intentManager;
+	private final AtomicReference<Runnable> operationalListener;
+	private volatile Map<Class<? extends Intent>, List<Consumer<Intent>>> handlers;
+	private volatile boolean operational;
 	
 	public Service() {
 		this.registration = new HashMap<>();
 		this.intentManager = new AtomicReference<>(null);
+		this.operationalListener = new AtomicReference<>(null);
+		this.operational = true;
+		this.handlers = null;
 	}
 	
 	@Override
@@ -76,17 +77,80 @@ public abstract class Service implements ServiceBase {
 		return true;
 	}
 	
+	@Override
+	public final boolean hasNotifiedNotOperational() {
+		return !operational;
+	}
+	
+	@Override
+	public void setOperationalListener(@Nullable Runnable listener) {
+		operationalListener.set(listener);
+	}
+	
+	/**
+	 * Marks this service as no longer operational, and immediately wakes up the run loop that is monitoring it. This takes effect regardless of what {@link #isOperational()}
+	 * returns
+	 */
+	protected final void notifyNotOperational() {
+		operational = false;
+		Runnable listener = operationalListener.get();
+		if (listener != null)
+			listener.run();
+	}
+	
 	@Override
 	public void setIntentManager(IntentManager intentManager) {
+		setIntentManager(intentManager, true);
+	}
+	
+	/**
+	 * Sets the intent manager, optionally without registering this service's intent handlers. Services created lazily by a {@link Manager} receive their intents through
+	 * {@link #dispatchIntent(Intent)} instead
+	 *
+	 * @param intentManager    the intent manager
+	 * @param registerHandlers TRUE to register the intent handlers with the intent manager, FALSE otherwise
+	 */
+	void setIntentManager(IntentManager intentManager, boolean registerHandlers) {
 		IntentManager prev = this.intentManager.getAndSet(intentManager);
 		if (prev != null) {
 			unregisterIntentHandlers(prev);
 		}
-		if (intentManager != null) {
+		if (intentManager != null && registerHandlers) {
 			registerIntentHandlers(intentManager);
 		}
 	}
 	
+	/**
+	 * Directly runs each intent handler for the intent's type on the calling thread
+	 *
+	 * @param intent the intent to handle
+	 */
+	void dispatchIntent(@NotNull Intent intent) {
+		Map<Class<? extends Intent>, List<Consumer<Intent>>> handlers = this.handlers;
+		if (handlers == null) {
+			Map<Class<? extends Intent>, List<Consumer<Intent>>> created = new HashMap<>();
+			for (IntentHandlerMethod handler : ServiceHandlers.of(getClass()).getIntentHandlers())
+				created.computeIfAbsent(handler.getIntent(), c -> new ArrayList<>()).add(i -> handler.invoke(this, i));
+			this.handlers = handlers = created;
+		}
+		for (Consumer<Intent> handler : handlers.getOrDefault(intent.getClass(), List.of()))
+			handler.accept(intent);
+	}
+	
+	/**
+	 * Returns each intent type that the service class has an intent handler for, without creating an instance
+	 *
+	 * @param service the service class
+	 * @return the intent types handled by the service
+	 */
+	@NotNull
+	static Set<Class<? extends Intent>> getHandledIntents(@NotNull Class<? extends Service> service) {
+		Set<Class<? extends Intent>> intents = new HashSet<>();
+		for (IntentHandlerMethod handler : ServiceHandlers.of(service).getIntentHandlers())
+			intents.add(handler.getIntent());
+		return intents;
+	}
+	
 	protected IntentManager getIntentManager() {
 		return intentManager.get();
 	}
@@ -98,41 +162,14 @@ public abstract class Service implements ServiceBase {
 		registration.clear();
 	}
 	
-	private void registerIntentHandlers(@NotNull IntentManager registry) {
-		registerIntentHandlers(getClass(), registry);
-	}
-	
 	@SuppressWarnings("unchecked")
-	private void registerIntentHandlers(@NotNull Class<? extends Service> klass, @NotNull IntentManager registry) {
-		for (Method m : klass.getDeclaredMethods()) {
-			if (m.isAnnotationPresent(IntentHandler.class)) {
-				if (m.getParameterCount() == 1) {
-					Parameter p = m.getParameters()[0];
-					Class<?> paramClass = p.getType();
-					if (Intent.class.isAssignableFrom(paramClass)) {
-						if (Modifier.isProtected(m.getModifiers()) || Modifier.isPublic(m.getModifiers()))
-							Log.w("Intent handler '%s::%s' is not (package) private!", klass.getName(), m.getName());
-						m.setAccessible(true);
-						
-						Object consumerKey = getClass().getName() + "#" + m.getName();
-						Class<Intent> intentClass = (Class<Intent>) paramClass;
-						Consumer<Intent> intentConsumer = i -> invoke(m, i, paramClass);
-						registry.registerForIntent(intentClass, consumerKey, intentConsumer);
-						registration.computeIfAbsent(intentClass, c -> new CopyOnWriteArrayList<>()).add(consumerKey);
-					}
-				}
-			}
-		}
-		Class<?> superKlass = klass.getSuperclass();
-		if (Service.class.isAssignableFrom(superKlass))
-			registerIntentHandlers((Class<? extends Service>) superKlass, registry);
-	}
-	
-	private void invoke(Method m, Intent intent, Class<?> klass) {
-		try {
-			m.invoke(this, klass.cast(intent));
-		} catch (IllegalAccessException | InvocationTargetException e) {
-			throw new RuntimeException(e);
+	private void registerIntentHandlers(@NotNull IntentManager registry) {
+		for (IntentHandlerMethod handler : ServiceHandlers.of(getClass()).getIntentHandlers()) {
+			Object consumerKey = getClass().getName() + "#" + handler.getName();
+			Class<Intent> intentClass = (Class<Intent>) handler.getIntent();
+			Consumer<Intent> intentConsumer = i -> handler.invoke(this, i);
+			registry.registerForIntent(intentClass, consumerKey, intentConsumer);
+			registration.computeIfAbsent(intentClass, c -> new CopyOnWriteArrayList<>()).add(consumerKey);
 		}
 	}
 	
@@ -23,6 +23,8 @@
  ***********************************************************************************/
 package me.joshlarson.jlcommon.control;
 
+import org.jetbrains.annotations.Nullable;
+
 public interface ServiceBase {
 	
 	/**
@@ -60,6 +62,25 @@ public interface ServiceBase {
 	 */
 	boolean isOperational();
 	
+	/**
+	 * Sets the listener to run when this service stops being operational. Services that never run the listener are still detected by the periodic isOperational check, only more slowly
+	 *
+	 * @param listener the listener, or null to remove the current listener
+	 */
+	default void setOperationalListener(@Nullable Runnable listener) {
+		
+	}
+	
+	/**
+	 * Determines whether or not this service has reported that it is no longer operational through its operational listener. This is checked alongside
+	 * {@link #isOperational()}, so the report is not lost when a subclass overrides isOperational
+	 *
+	 * @return TRUE if this service reported that it is no longer operational, FALSE otherwise
+	 */
+	default boolean hasNotifiedNotOperational() {
+		return false;
+	}
+	
 	/**
 	 * Sets the intent registry for this service tree
 	 * 
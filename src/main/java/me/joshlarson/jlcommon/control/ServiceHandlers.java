@@ -0,0 +1,283 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.control;
+
+import me.joshlarson.jlcommon.control.IntentMultiplexer.Multiplexer;
+import me.joshlarson.jlcommon.control.IntentRegistry.MultiplexerInvoker;
+import me.joshlarson.jlcommon.log.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The intent handlers and multiplexers of a Service class and all of its superclasses. Each class is only scanned once, using its generated {@link IntentRegistry} if one exists and
+ * reflection otherwise
+ */
+final class ServiceHandlers {
+	
+	private static final String REGISTRY_SUFFIX = "_IntentRegistry";
+	private static final ClassValue<ServiceHandlers> HANDLERS = new ClassValue<>() {
+		@Override
+		protected ServiceHandlers computeValue(Class<?> type) {
+			return new ServiceHandlers(type);
+		}
+	};
+	
+	private final List<IntentHandlerMethod> intentHandlers;
+	private final List<MultiplexerMethod> multiplexers;
+	
+	private ServiceHandlers(@NotNull Class<?> klass) {
+		this.intentHandlers = new ArrayList<>();
+		this.multiplexers = new ArrayList<>();
+		if (!loadGenerated(klass))
+			loadReflection(klass);
+		Class<?> superKlass = klass.getSuperclass();
+		if (superKlass != null && Service.class.isAssignableFrom(superKlass)) {
+			ServiceHandlers inherited = HANDLERS.get(superKlass);
+			intentHandlers.addAll(inherited.intentHandlers);
+			multiplexers.addAll(inherited.multiplexers);
+		}
+	}
+	
+	@NotNull
+	public List<IntentHandlerMethod> getIntentHandlers() {
+		return intentHandlers;
+	}
+	
+	@NotNull
+	public List<MultiplexerMethod> getMultiplexers() {
+		return multiplexers;
+	}
+	
+	@NotNull
+	public static ServiceHandlers of(@NotNull Class<? extends Service> klass) {
+		return HANDLERS.get(klass);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private boolean loadGenerated(@NotNull Class<?> klass) {
+		IntentRegistry<Service> registry;
+		try {
+			Class<?> registryClass = Class.forName(klass.getName() + REGISTRY_SUFFIX, true, klass.getClassLoader());
+			registry = (IntentRegistry<Service>) registryClass.getConstructor().newInstance();
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			Log.w("Unable to load the generated intent registry for %s, falling back to reflection: %s", klass.getName(), e);
+			return false;
+		}
+		registry.register(new IntentRegistry.Registrar<>() {
+			@Override
+			public void intentHandler(@NotNull String name, @NotNull Class<? extends Intent> intent, @NotNull BiConsumer<Service, Intent> handler) {
+				intentHandlers.add(new IntentHandlerMethod(name, intent, handler));
+			}
+			
+			@Override
+			public void multiplexer(@NotNull String name, @NotNull Class<?> [] parameters, @NotNull MultiplexerInvoker<Service> invoker) {
+				multiplexers.add(new MultiplexerMethod(name, parameters, invoker));
+			}
+		});
+		return true;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void loadReflection(@NotNull Class<?> klass) {
+		for (Method m : klass.getDeclaredMethods()) {
+			if (m.isAnnotationPresent(IntentHandler.class)) {
+				if (m.getParameterCount() == 1) {
+					Class<?> paramClass = m.getParameterTypes()[0];
+					if (Intent.class.isAssignableFrom(paramClass)) {
+						if (Modifier.isProtected(m.getModifiers()) || Modifier.isPublic(m.getModifiers()))
+							Log.w("Intent handler '%s::%s' is not (package) private!", klass.getName(), m.getName());
+						m.setAccessible(true);
+						intentHandlers.add(new IntentHandlerMethod(m.getName(), (Class<? extends Intent>) paramClass, (service, intent) -> invoke(m, service, intent)));
+					}
+				}
+			}
+			if (m.isAnnotationPresent(Multiplexer.class)) {
+				m.setAccessible(true);
+				multiplexers.add(new MultiplexerMethod(m.getName(), m.getParameterTypes(), createInvoker(m)));
+			}
+		}
+	}
+	
+	/**
+	 * Creates an invoker backed by method handles, so that the fixed-arity calls do not allocate an argument array
+	 */
+	@NotNull
+	private static MultiplexerInvoker<Service> createInvoker(@NotNull Method m) {
+		MethodHandle handle;
+		try {
+			handle = MethodHandles.lookup().unreflect(m);
+		} catch (IllegalAccessException e) {
+			return (service, args) -> invoke(m, service, args);
+		}
+		if (Modifier.isStatic(m.getModifiers()))
+			handle = MethodHandles.dropArguments(handle, 0, Object.class);
+		int parameters = m.getParameterCount();
+		MethodHandle exact = handle.asType(MethodType.genericMethodType(parameters + 1).changeReturnType(void.class));
+		MethodHandle spread = exact.asSpreader(Object[].class, parameters);
+		return new MultiplexerInvoker<>() {
+			@Override
+			public void invoke(@NotNull Service service, @NotNull Object [] args) {
+				try {
+					spread.invokeExact((Object) service, args);
+				} catch (Throwable t) {
+					throw rethrow(t);
+				}
+			}
+			
+			@Override
+			public void invoke(@NotNull Service service, Object arg) {
+				if (parameters != 1) {
+					MultiplexerInvoker.super.invoke(service, arg);
+					return;
+				}
+				try {
+					exact.invokeExact((Object) service, arg);
+				} catch (Throwable t) {
+					throw rethrow(t);
+				}
+			}
+			
+			@Override
+			public void invoke(@NotNull Service service, Object arg1, Object arg2) {
+				if (parameters != 2) {
+					MultiplexerInvoker.super.invoke(service, arg1, arg2);
+					return;
+				}
+				try {
+					exact.invokeExact((Object) service, arg1, arg2);
+				} catch (Throwable t) {
+					throw rethrow(t);
+				}
+			}
+		};
+	}
+	
+	@NotNull
+	private static RuntimeException rethrow(@NotNull Throwable t) {
+		if (t instanceof RuntimeException)
+			return (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+		return new RuntimeException(t);
+	}
+	
+	/**
+	 * Invokes the method, rethrowing anything thrown by the method itself rather than wrapping it in an InvocationTargetException
+	 */
+	private static void invoke(@NotNull Method m, @NotNull Service service, @Nullable Object ... args) {
+		try {
+			m.invoke(service, args);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		} catch (InvocationTargetException e) {
+			throw rethrow(e.getCause());
+		}
+	}
+	
+	static final class IntentHandlerMethod {
+		
+		private final String name;
+		private final Class<? extends Intent> intent;
+		private final BiConsumer<Service, Intent> handler;
+		
+		private IntentHandlerMethod(@NotNull String name, @NotNull Class<? extends Intent> intent, @NotNull BiConsumer<Service, Intent> handler) {
+			this.name = name;
+			this.intent = intent;
+			this.handler = handler;
+		}
+		
+		@NotNull
+		public String getName() {
+			return name;
+		}
+		
+		@NotNull
+		public Class<? extends Intent> getIntent() {
+			return intent;
+		}
+		
+		public void invoke(@NotNull Service service, @NotNull Intent intent) {
+			handler.accept(service, intent);
+		}
+		
+	}
+	
+	static final class MultiplexerMethod {
+		
+		private final String name;
+		private final Class<?> [] parameters;
+		private final MultiplexerInvoker<Service> invoker;
+		
+		private MultiplexerMethod(@NotNull String name, @NotNull Class<?> [] parameters, @NotNull MultiplexerInvoker<Service> invoker) {
+			this.name = name;
+			this.parameters = parameters.clone();
+			this.invoker = invoker;
+		}
+		
+		@NotNull
+		public String getName() {
+			return name;
+		}
+		
+		@NotNull
+		public Class<?> [] getParameters() {
+			return parameters.clone();
+		}
+		
+		public int getParameterCount() {
+			return parameters.length;
+		}
+		
+		@NotNull
+		public Class<?> getParameter(int index) {
+			return parameters[index];
+		}
+		
+		public void invoke(@NotNull Service service, @NotNull Object [] args) {
+			invoker.invoke(service, args);
+		}
+		
+		public void invoke(@NotNull Service service, Object arg) {
+			invoker.invoke(service, arg);
+		}
+		
+		public void invoke(@NotNull Service service, Object arg1, Object arg2) {
+			invoker.invoke(service, arg1, arg2);
+		}
+		
+	}
+	
+}
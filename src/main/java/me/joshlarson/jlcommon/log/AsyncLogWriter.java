@@ -0,0 +1,308 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log;
+
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import me.joshlarson.jlcommon.log.Log.OverflowPolicy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands log events from any number of threads to a single writer thread through a bounded, lock-free ring buffer. Logging threads only copy a few references into a pre-allocated slot,
+ * so they never format, take a lock or call into a wrapper. The writer thread drains the buffer in batches and formats each event on its own time.
+ */
+final class AsyncLogWriter {
+	
+	private static final int BATCH_SIZE = 256;
+	private static final int SAMPLE_RATE = 16;
+	private static final long IDLE_PARK_NANOS = 10_000_000;
+	private static final long FULL_PARK_NANOS = 50_000;
+	
+	private final Log log;
+	private final OverflowPolicy policy;
+	private final LogEvent [] events;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final int highWaterMark;
+	private final AtomicLong tail;
+	private final AtomicLong dropped;
+	private final AtomicInteger sampleCounter;
+	private final AtomicInteger publishing;
+	private final Thread writer;
+	private final Thread shutdownHook;
+	private volatile long head;
+	private volatile boolean writerWaiting;
+	private volatile boolean running;
+	private long reportedDropped;
+	
+	public AsyncLogWriter(@NotNull Log log, int capacity, @NotNull OverflowPolicy policy) {
+		if (capacity <= 1 || capacity > (1 << 30))
+			throw new IllegalArgumentException("capacity must be between 2 and 2^30");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		this.log = log;
+		this.policy = policy;
+		this.events = new LogEvent[size];
+		this.sequences = new AtomicLongArray(size);
+		this.mask = size - 1;
+		this.highWaterMark = size - size / 4;
+		this.tail = new AtomicLong(0);
+		this.dropped = new AtomicLong(0);
+		this.sampleCounter = new AtomicInteger(0);
+		this.publishing = new AtomicInteger(0);
+		this.writer = new Thread(this::writerLoop, "log-writer");
+		this.shutdownHook = new Thread(this::stop, "log-writer-shutdown");
+		this.head = 0;
+		this.writerWaiting = false;
+		this.running = false;
+		this.reportedDropped = 0;
+		for (int i = 0; i < size; i++) {
+			events[i] = new LogEvent();
+			sequences.set(i, i);
+		}
+		writer.setDaemon(true);
+	}
+	
+	public void start() {
+		running = true;
+		writer.start();
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+	
+	/**
+	 * Stops accepting new events, waits for the writer thread to write everything that has already been published and then stops it
+	 */
+	public void stop() {
+		running = false;
+		LockSupport.unpark(writer);
+		if (Thread.currentThread() != writer) {
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (Thread.currentThread() != shutdownHook) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			} catch (IllegalStateException e) {
+				// The JVM is already shutting down and will run the hook itself
+			}
+		}
+	}
+	
+	/**
+	 * Blocks until every event that was published before this call has been written
+	 */
+	public void flush() {
+		if (Thread.currentThread() == writer)
+			return;
+		long target = tail.get();
+		while (head < target && writer.isAlive()) {
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(this, FULL_PARK_NANOS);
+		}
+	}
+	
+	public long getDropped() {
+		return dropped.get();
+	}
+	
+	/**
+	 * Publishes the event to the writer thread, applying the overflow policy if the buffer is filling up. Events at WARN and above are never dropped
+	 *
+	 * @param level     the log level
+	 * @param message   the format string, or null for an exception
+	 * @param args      the format arguments, or null for an exception
+	 * @param exception the exception to print, or null for a message
+	 * @param entry     the structured entry, or null for a plain message
+	 * @return TRUE if the event was either published or intentionally dropped, FALSE if the caller has to write it synchronously
+	 */
+	public boolean publish(@NotNull LogLevel level, @Nullable String message, @Nullable Object[] args, @Nullable Throwable exception, @Nullable LogEntry entry) {
+		if (Thread.currentThread() == writer)
+			return false;
+		// Registered before checking running, so the writer keeps draining until every producer that saw it running has published
+		publishing.incrementAndGet();
+		try {
+			return publishEvent(level, message, args, exception, entry);
+		} finally {
+			publishing.decrementAndGet();
+		}
+	}
+	
+	private boolean publishEvent(@NotNull LogLevel level, @Nullable String message, @Nullable Object[] args, @Nullable Throwable exception, @Nullable LogEntry entry) {
+		if (!running)
+			return false;
+		boolean droppable = policy != OverflowPolicy.BLOCK && level.compareTo(LogLevel.WARN) < 0;
+		if (droppable && !isAdmitted(level)) {
+			dropped.incrementAndGet();
+			return true;
+		}
+		long time = entry == null ? System.currentTimeMillis() : entry.getTime();
+		String threadName = exception == null ? null : Thread.currentThread().getName();
+		for (int attempt = 0; ; attempt++) {
+			long position = tail.get();
+			int index = (int) (position & mask);
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					events[index].set(level, time, threadName, message, args, exception, entry);
+					sequences.set(index, position + 1);
+					if (writerWaiting)
+						LockSupport.unpark(writer);
+					return true;
+				}
+			} else if (difference < 0) {
+				// The buffer is full
+				if (droppable) {
+					dropped.incrementAndGet();
+					return true;
+				}
+				if (!running)
+					return false;
+				waitForSpace(attempt);
+			}
+		}
+	}
+	
+	private boolean isAdmitted(@NotNull LogLevel level) {
+		if (tail.get() - head < highWaterMark)
+			return true;
+		switch (policy) {
+			case DROP_LOW_LEVELS:
+				return level.compareTo(LogLevel.INFO) >= 0;
+			case SAMPLE:
+				return sampleCounter.getAndIncrement() % SAMPLE_RATE == 0;
+			default:
+				return true;
+		}
+	}
+	
+	private void waitForSpace(int attempt) {
+		LockSupport.unpark(writer);
+		if (attempt < 64)
+			Thread.onSpinWait();
+		else if (attempt < 128)
+			Thread.yield();
+		else
+			LockSupport.parkNanos(this, FULL_PARK_NANOS);
+	}
+	
+	private void writerLoop() {
+		while (running || publishing.get() != 0 || head != tail.get()) {
+			if (drain() == 0)
+				awaitEvents();
+		}
+		synchronized (log) {
+			log.flushWrappers();
+		}
+	}
+	
+	private void awaitEvents() {
+		writerWaiting = true;
+		if (running && sequences.get((int) (head & mask)) != head + 1)
+			LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+		writerWaiting = false;
+	}
+	
+	private int drain() {
+		long position = head;
+		int count = 0;
+		synchronized (log) {
+			while (count < BATCH_SIZE) {
+				int index = (int) (position & mask);
+				if (sequences.get(index) != position + 1)
+					break;
+				LogEvent event = events[index];
+				try {
+					event.write(log);
+				} catch (Throwable t) {
+					t.printStackTrace();
+				}
+				event.clear();
+				sequences.set(index, position + events.length);
+				head = ++position;
+				count++;
+			}
+			long dropped = this.dropped.get();
+			if (dropped != reportedDropped) {
+				log.logImplementation(LogLevel.WARN, System.currentTimeMillis(), "Dropped %d log messages because the log buffer was full", dropped - reportedDropped);
+				reportedDropped = dropped;
+			}
+		}
+		return count;
+	}
+	
+	private static class LogEvent {
+		
+		private LogLevel level;
+		private long time;
+		private String threadName;
+		private String message;
+		private Object [] args;
+		private Throwable exception;
+		private LogEntry entry;
+		
+		public LogEvent() {
+			clear();
+		}
+		
+		public void set(@NotNull LogLevel level, long time, @Nullable String threadName, @Nullable String message, @Nullable Object[] args, @Nullable Throwable exception, @Nullable LogEntry entry) {
+			this.level = level;
+			this.time = time;
+			this.threadName = threadName;
+			this.message = message;
+			this.args = args;
+			this.exception = exception;
+			this.entry = entry;
+		}
+		
+		public void write(@NotNull Log log) {
+			if (entry != null)
+				log.logEntryImplementation(entry);
+			else if (exception != null)
+				log.logException(level, time, threadName, exception, 0);
+			else
+				log.logImplementation(level, time, message, args);
+		}
+		
+		public void clear() {
+			this.level = null;
+			this.time = 0;
+			this.threadName = null;
+			this.message = null;
+			this.args = null;
+			this.exception = null;
+			this.entry = null;
+		}
+		
+	}
+	
+}
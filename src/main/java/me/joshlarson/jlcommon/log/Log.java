@@ -24,50 +24,219 @@
 package me.joshlarson.jlcommon.log;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 public class Log {
 	
-	private static Log INSTANCE = null;
+	private static final Log INSTANCE = new Log();
+	private static final int DISABLED = Integer.MAX_VALUE;
+	private static final Object [] NO_ARGS = new Object[0];
+	private static final ThreadLocal<LogEntry> ENTRIES = ThreadLocal.withInitial(LogEntry::new);
 	
 	private final List<LogWrapper> wrappers;
-	private final DateTimeFormatter timeFormat;
+	private final List<RawLogWrapper> rawWrappers;
+	private final List<StructuredLogWrapper> structuredWrappers;
+	private final Map<String, Logger> loggers;
+	private final Map<String, LogLevel> levels;
+	private final Logger root;
+	private final LogEntry plainEntry;
+	private final LogFormatter formatter;
+	private final Object asyncLock;
+	private volatile AsyncLogWriter asyncWriter;
+	private volatile int minimumLevel;
 	
 	private Log() {
-		this.wrappers = new ArrayList<>();
-		this.timeFormat = DateTimeFormatter.ofPattern("dd-MM-yy HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+		this.wrappers = new CopyOnWriteArrayList<>();
+		this.rawWrappers = new CopyOnWriteArrayList<>();
+		this.structuredWrappers = new CopyOnWriteArrayList<>();
+		this.loggers = new ConcurrentHashMap<>();
+		this.levels = new HashMap<>();
+		this.root = new Logger("", DISABLED);
+		this.plainEntry = new LogEntry();
+		this.formatter = new LogFormatter();
+		this.asyncLock = new Object();
+		this.asyncWriter = null;
+		this.minimumLevel = DISABLED;
+		this.loggers.put("", root);
 	}
 	
-	private void logAddWrapper(@NotNull LogWrapper wrapper) {
-		wrappers.add(wrapper);
+	private synchronized void logAddWrapper(@NotNull LogWrapper wrapper) {
+		if (wrapper instanceof StructuredLogWrapper)
+			structuredWrappers.add((StructuredLogWrapper) wrapper);
+		else if (wrapper instanceof RawLogWrapper)
+			rawWrappers.add((RawLogWrapper) wrapper);
+		else
+			wrappers.add(wrapper);
+		updateLevels();
 	}
 	
-	private void logClearWrappers() {
+	private synchronized void logClearWrappers() {
 		wrappers.clear();
+		rawWrappers.clear();
+		structuredWrappers.clear();
+		updateLevels();
 	}
 	
-	private void logImplementation(@NotNull LogLevel level, @NotNull String str, Object... args) {
-		String date = timeFormat.format(Instant.now());
-		String logStr;
-		if (args.length == 0)
-			logStr = date + ' ' + level.getChar() + ": " + str;
+	@NotNull
+	private Logger logGetLogger(@NotNull String name) {
+		Logger logger = loggers.get(name);
+		if (logger != null)
+			return logger;
+		synchronized (this) {
+			return loggers.computeIfAbsent(name, n -> new Logger(n, getThreshold(n)));
+		}
+	}
+	
+	private synchronized void logSetLevel(@NotNull String name, @Nullable LogLevel level) {
+		if (level == null)
+			levels.remove(name);
 		else
-			logStr = date + ' ' + level.getChar() + ": " + String.format(str, args);
+			levels.put(name, level);
+		updateLevels();
+	}
+	
+	private synchronized void logSetLevels(@NotNull Map<String, LogLevel> levels) {
+		this.levels.clear();
+		this.levels.putAll(levels);
+		updateLevels();
+	}
+	
+	@Nullable
+	private synchronized LogLevel logGetLevel(@NotNull String name) {
+		while (true) {
+			LogLevel level = levels.get(name);
+			if (level != null || name.isEmpty())
+				return level;
+			name = name.substring(0, Math.max(0, Math.max(name.lastIndexOf('.'), name.lastIndexOf('$'))));
+		}
+	}
+	
+	private synchronized void updateLevels() {
+		updateMinimumLevel();
+		for (Logger logger : loggers.values())
+			logger.setThreshold(getThreshold(logger.getName()));
+	}
+	
+	private int getThreshold(@NotNull String name) {
+		LogLevel level = logGetLevel(name);
+		return level == null ? minimumLevel : Math.max(minimumLevel, level.ordinal());
+	}
+	
+	private void updateMinimumLevel() {
+		int minimumLevel = DISABLED;
+		for (LogWrapper wrapper : wrappers)
+			minimumLevel = Math.min(minimumLevel, wrapper.getMinimumLevel().ordinal());
+		for (LogWrapper wrapper : rawWrappers)
+			minimumLevel = Math.min(minimumLevel, wrapper.getMinimumLevel().ordinal());
+		for (LogWrapper wrapper : structuredWrappers)
+			minimumLevel = Math.min(minimumLevel, wrapper.getMinimumLevel().ordinal());
+		this.minimumLevel = minimumLevel;
+	}
+	
+	private void logStartAsync(int capacity, @NotNull OverflowPolicy policy) {
+		synchronized (asyncLock) {
+			logStopAsync();
+			AsyncLogWriter asyncWriter = new AsyncLogWriter(this, capacity, policy);
+			asyncWriter.start();
+			this.asyncWriter = asyncWriter;
+		}
+	}
+	
+	private void logStopAsync() {
+		synchronized (asyncLock) {
+			AsyncLogWriter asyncWriter = this.asyncWriter;
+			this.asyncWriter = null;
+			if (asyncWriter != null)
+				asyncWriter.stop();
+		}
+	}
+	
+	void logImplementation(@NotNull LogLevel level, long time, @NotNull String str, Object... args) {
+		if (args == null)
+			args = NO_ARGS;
+		for (RawLogWrapper wrapper : rawWrappers) {
+			if (isPrinted(wrapper, level))
+				wrapper.onLog(level, time, str, args);
+		}
+		if (wrappers.isEmpty() && structuredWrappers.isEmpty())
+			return;
+		CharSequence line = formatter.format(level, time, str, args);
 		for (LogWrapper wrapper : wrappers) {
-			wrapper.onLog(level, logStr);
+			if (isPrinted(wrapper, level))
+				wrapper.onLog(level, line);
+		}
+		if (!structuredWrappers.isEmpty()) {
+			plainEntry.reset(level, time, formatter.getMessage());
+			for (StructuredLogWrapper wrapper : structuredWrappers) {
+				if (isPrinted(wrapper, level))
+					wrapper.onLog(plainEntry);
+			}
+			plainEntry.finish();
+		}
+	}
+	
+	void logEntryImplementation(@NotNull LogEntry entry) {
+		LogLevel level = entry.getLevel();
+		for (StructuredLogWrapper wrapper : structuredWrappers) {
+			if (isPrinted(wrapper, level))
+				wrapper.onLog(entry);
+		}
+		if (wrappers.isEmpty() && rawWrappers.isEmpty())
+			return;
+		CharSequence line = formatter.format(entry);
+		for (LogWrapper wrapper : wrappers) {
+			if (isPrinted(wrapper, level))
+				wrapper.onLog(level, line);
+		}
+		if (!rawWrappers.isEmpty()) {
+			String message = formatter.getMessage().toString();
+			for (RawLogWrapper wrapper : rawWrappers) {
+				if (isPrinted(wrapper, level))
+					wrapper.onLog(level, entry.getTime(), message, NO_ARGS);
+			}
 		}
 	}
 	
+	private static boolean isPrinted(@NotNull LogWrapper wrapper, @NotNull LogLevel level) {
+		return level.compareTo(wrapper.getMinimumLevel()) >= 0;
+	}
+	
+	void flushWrappers() {
+		for (LogWrapper wrapper : wrappers) {
+			wrapper.flush();
+		}
+		for (LogWrapper wrapper : rawWrappers) {
+			wrapper.flush();
+		}
+		for (LogWrapper wrapper : structuredWrappers) {
+			wrapper.flush();
+		}
+	}
+	
+	void logException(@NotNull LogLevel level, long time, @NotNull String threadName, @NotNull Throwable exception, int depth) {
+		String depthString = createExceptionDepthString(depth);
+		String header1 = String.format("Exception in thread \"%s\" %s: %s", threadName, exception.getClass().getName(), exception.getMessage());
+		String header2 = String.format("Caused by: %s: %s", exception.getClass().getCanonicalName(), exception.getMessage());
+		StackTraceElement[] elements = exception.getStackTrace();
+		logImplementation(level, time, depthString + header1);
+		logImplementation(level, time, depthString + header2);
+		for (StackTraceElement e : elements) {
+			logImplementation(level, time, depthString + "    " + e.toString());
+		}
+		if (exception.getCause() != null)
+			logException(level, time, threadName, exception.getCause(), depth + 1);
+	}
+	
 	@NotNull
-	private static synchronized Log getInstance() {
-		if (INSTANCE != null)
-			return INSTANCE;
-		return INSTANCE = new Log();
+	private static Log getInstance() {
+		return INSTANCE;
 	}
 	
 	public static void addWrapper(@NotNull LogWrapper wrapper) {
@@ -78,6 +247,204 @@ public class Log {
 		getInstance().logClearWrappers();
 	}
 	
+	/**
+	 * Returns the logger for the specified name, creating it if it does not exist yet. Names are hierarchical: a logger without its own level uses the level of the closest parent
+	 * name, split on '.' and '$', and the empty name is the root logger used by the static methods in this class
+	 *
+	 * @param name the logger name, usually a class or package name
+	 * @return the logger
+	 */
+	@NotNull
+	public static Logger getLogger(@NotNull String name) {
+		return getInstance().logGetLogger(name);
+	}
+	
+	/**
+	 * Returns the logger named after the specified class. See {@link #getLogger(String)}
+	 *
+	 * @param c the class
+	 * @return the logger
+	 */
+	@NotNull
+	public static Logger getLogger(@NotNull Class<?> c) {
+		return getLogger(c.getName());
+	}
+	
+	/**
+	 * Sets the level of the specified logger and every logger below it that does not have its own level. A logger only prints a message if both its level and at least one
+	 * registered wrapper allow it, so lowering a level does not lower the minimum level of the wrappers
+	 *
+	 * @param name  the logger name, or an empty string for the root logger
+	 * @param level the new level, or null to inherit the level of the parent name again
+	 */
+	public static void setLevel(@NotNull String name, @Nullable LogLevel level) {
+		getInstance().logSetLevel(name, level);
+	}
+	
+	/**
+	 * Replaces every configured logger level at once, such as when a configuration file is reloaded. Any name that is not in the map goes back to inheriting its level
+	 *
+	 * @param levels the logger names mapped to their levels
+	 */
+	public static void setLevels(@NotNull Map<String, LogLevel> levels) {
+		getInstance().logSetLevels(levels);
+	}
+	
+	/**
+	 * Returns the configured level that applies to the specified logger name, which is either its own level or the level of its closest configured parent
+	 *
+	 * @param name the logger name
+	 * @return the configured level, or null if neither the name nor any parent has one
+	 */
+	@Nullable
+	public static LogLevel getLevel(@NotNull String name) {
+		return getInstance().logGetLevel(name);
+	}
+	
+	/**
+	 * Recomputes the effective level of every logger. Must be called after the minimum level of a registered wrapper changes
+	 */
+	public static void refreshLevels() {
+		getInstance().updateLevels();
+	}
+	
+	/**
+	 * Determines whether or not messages at the specified level are printed by the root logger. This is only a single volatile read, so it can guard expensive log statements in hot
+	 * paths
+	 *
+	 * @param level the log level to check
+	 * @return TRUE if messages at this level are printed, FALSE otherwise
+	 */
+	public static boolean isEnabled(@NotNull LogLevel level) {
+		return getInstance().root.isEnabled(level);
+	}
+	
+	/**
+	 * Switches to asynchronous logging with a buffer of 8192 events that blocks logging threads when it is full. See {@link #startAsync(int, OverflowPolicy)}
+	 */
+	public static void startAsync() {
+		startAsync(8192, OverflowPolicy.BLOCK);
+	}
+	
+	/**
+	 * Switches to asynchronous logging. Logging threads publish each message into a lock-free ring buffer and return immediately, while a dedicated writer thread formats the messages
+	 * and passes them to the wrappers in batches. Because formatting happens later, the format arguments should not be modified after they are logged. Any events that are still
+	 * buffered are written before the JVM shuts down.
+	 *
+	 * @param capacity the number of events the buffer can hold, rounded up to the next power of two
+	 * @param policy   what to do when logging threads publish faster than the writer thread can keep up
+	 */
+	public static void startAsync(int capacity, @NotNull OverflowPolicy policy) {
+		getInstance().logStartAsync(capacity, policy);
+	}
+	
+	/**
+	 * Writes every buffered event and returns to synchronous logging. Does nothing if asynchronous logging was never started
+	 */
+	public static void stopAsync() {
+		getInstance().logStopAsync();
+	}
+	
+	/**
+	 * Blocks until every message that was logged before this call has been passed to the wrappers, and then flushes each wrapper
+	 */
+	public static void flush() {
+		Log instance = getInstance();
+		AsyncLogWriter asyncWriter = instance.asyncWriter;
+		if (asyncWriter != null)
+			asyncWriter.flush();
+		synchronized (instance) {
+			instance.flushWrappers();
+		}
+	}
+	
+	/**
+	 * Returns the number of messages that have been dropped by the overflow policy of the current asynchronous writer
+	 *
+	 * @return the number of dropped messages, or 0 in synchronous mode
+	 */
+	public static long getDroppedMessages() {
+		AsyncLogWriter asyncWriter = getInstance().asyncWriter;
+		return asyncWriter == null ? 0 : asyncWriter.getDropped();
+	}
+	
+	/**
+	 * Starts a structured log entry at the specified level. Fields are added with {@link LogEntry#kv(String, Object)} and the entry is written once {@link LogEntry#log()} is
+	 * called. If the level is disabled, the returned entry ignores everything, so only the field values themselves are evaluated:
+	 * <pre>{@code Log.at(LogLevel.INFO, "Player connected").kv("player", id).kv("latency", ns).log();}</pre>
+	 *
+	 * @param level   the log level
+	 * @param message the plain message, which is not formatted
+	 * @return the entry to add fields to
+	 */
+	@NotNull
+	public static LogEntry at(@NotNull LogLevel level, @NotNull String message) {
+		return isEnabled(level) ? startEntry(level, message) : LogEntry.DISABLED;
+	}
+	
+	@NotNull
+	static LogEntry startEntry(@NotNull LogLevel level, @NotNull String message) {
+		LogEntry entry = ENTRIES.get();
+		if (entry.isPending())
+			entry = new LogEntry(); // A field value is being computed by code that logs another entry
+		return entry.start(level, message);
+	}
+	
+	/**
+	 * Starts a structured log entry at TRACE. See {@link #at(LogLevel, String)}
+	 *
+	 * @param message the plain message
+	 * @return the entry to add fields to
+	 */
+	@NotNull
+	public static LogEntry trace(@NotNull String message) {
+		return at(LogLevel.TRACE, message);
+	}
+	
+	/**
+	 * Starts a structured log entry at DATA. See {@link #at(LogLevel, String)}
+	 *
+	 * @param message the plain message
+	 * @return the entry to add fields to
+	 */
+	@NotNull
+	public static LogEntry data(@NotNull String message) {
+		return at(LogLevel.DATA, message);
+	}
+	
+	/**
+	 * Starts a structured log entry at INFO. See {@link #at(LogLevel, String)}
+	 *
+	 * @param message the plain message
+	 * @return the entry to add fields to
+	 */
+	@NotNull
+	public static LogEntry info(@NotNull String message) {
+		return at(LogLevel.INFO, message);
+	}
+	
+	/**
+	 * Starts a structured log entry at WARN. See {@link #at(LogLevel, String)}
+	 *
+	 * @param message the plain message
+	 * @return the entry to add fields to
+	 */
+	@NotNull
+	public static LogEntry warn(@NotNull String message) {
+		return at(LogLevel.WARN, message);
+	}
+	
+	/**
+	 * Starts a structured log entry at ERROR. See {@link #at(LogLevel, String)}
+	 *
+	 * @param message the plain message
+	 * @return the entry to add fields to
+	 */
+	@NotNull
+	public static LogEntry error(@NotNull String message) {
+		return at(LogLevel.ERROR, message);
+	}
+	
 	/**
 	 * Logs the string to the server log file, formatted to display the log severity, time and message.
 	 *
@@ -86,8 +453,16 @@ public class Log {
 	 * @param args  the string format arguments, if specified
 	 */
 	private static void log(@NotNull LogLevel level, @NotNull String str, Object... args) {
-		synchronized (getInstance()) {
-			getInstance().logImplementation(level, str, args);
+		if (isEnabled(level))
+			write(level, str, args);
+	}
+	
+	static void write(@NotNull LogLevel level, @NotNull String str, Object... args) {
+		Log instance = getInstance();
+		if (publish(instance, level, str, args, null, null))
+			return;
+		synchronized (instance) {
+			instance.logImplementation(level, System.currentTimeMillis(), str, args);
 		}
 	}
 	
@@ -101,6 +476,15 @@ public class Log {
 		log(LogLevel.TRACE, message, args);
 	}
 	
+	/**
+	 * Logs the supplied string to the server log file, formatted to display the log severity as TRACE, as well as the time and message. The supplier is only called if TRACE is enabled
+	 *
+	 * @param message the supplier of the message
+	 */
+	public static void t(@NotNull Supplier<String> message) {
+		log(LogLevel.TRACE, message);
+	}
+	
 	/**
 	 * Logs the string to the server log file, formatted to display the log severity as DATA, as well as the time and message.
 	 *
@@ -111,6 +495,15 @@ public class Log {
 		log(LogLevel.DATA, message, args);
 	}
 	
+	/**
+	 * Logs the supplied string to the server log file, formatted to display the log severity as DATA, as well as the time and message. The supplier is only called if DATA is enabled
+	 *
+	 * @param message the supplier of the message
+	 */
+	public static void d(@NotNull Supplier<String> message) {
+		log(LogLevel.DATA, message);
+	}
+	
 	/**
 	 * Logs the string to the server log file, formatted to display the log severity as INFO, as well as the time and message.
 	 *
@@ -121,6 +514,15 @@ public class Log {
 		log(LogLevel.INFO, message, args);
 	}
 	
+	/**
+	 * Logs the supplied string to the server log file, formatted to display the log severity as INFO, as well as the time and message. The supplier is only called if INFO is enabled
+	 *
+	 * @param message the supplier of the message
+	 */
+	public static void i(@NotNull Supplier<String> message) {
+		log(LogLevel.INFO, message);
+	}
+	
 	/**
 	 * Logs the string to the server log file, formatted to display the log severity as WARN, as well as the time and message.
 	 *
@@ -131,6 +533,15 @@ public class Log {
 		log(LogLevel.WARN, message, args);
 	}
 	
+	/**
+	 * Logs the supplied string to the server log file, formatted to display the log severity as WARN, as well as the time and message. The supplier is only called if WARN is enabled
+	 *
+	 * @param message the supplier of the message
+	 */
+	public static void w(@NotNull Supplier<String> message) {
+		log(LogLevel.WARN, message);
+	}
+	
 	/**
 	 * Logs the exception to the server log file, formatted to display the log severity as WARN, as well as the time, and tag.
 	 *
@@ -150,6 +561,15 @@ public class Log {
 		log(LogLevel.ERROR, message, args);
 	}
 	
+	/**
+	 * Logs the supplied string to the server log file, formatted to display the log severity as ERROR, as well as the time and message. The supplier is only called if ERROR is enabled
+	 *
+	 * @param message the supplier of the message
+	 */
+	public static void e(@NotNull Supplier<String> message) {
+		log(LogLevel.ERROR, message);
+	}
+	
 	/**
 	 * Logs the exception to the server log file, formatted to display the log severity as ERROR, as well as the time, and tag.
 	 *
@@ -169,6 +589,15 @@ public class Log {
 		log(LogLevel.ASSERT, message, args);
 	}
 	
+	/**
+	 * Logs the supplied string to the server log file, formatted to display the log severity as ASSERT, as well as the time and message. The supplier is only called if ASSERT is enabled
+	 *
+	 * @param message the supplier of the message
+	 */
+	public static void a(@NotNull Supplier<String> message) {
+		log(LogLevel.ASSERT, message);
+	}
+	
 	/**
 	 * Logs the exception to the server log file, formatted to display the log severity as ASSERT, as well as the time, and tag.
 	 *
@@ -178,25 +607,48 @@ public class Log {
 		printException(LogLevel.ASSERT, exception);
 	}
 	
+	private static void log(@NotNull LogLevel level, @NotNull Supplier<String> message) {
+		if (isEnabled(level))
+			log(level, message.get());
+	}
+	
 	private static void printException(@NotNull LogLevel level, @NotNull Throwable exception) {
-		synchronized (getInstance()) {
-			printException(level, exception, 0);
+		if (isEnabled(level))
+			writeException(level, exception);
+	}
+	
+	static void writeException(@NotNull LogLevel level, @NotNull Throwable exception) {
+		Log instance = getInstance();
+		if (publish(instance, level, null, null, exception, null))
+			return;
+		synchronized (instance) {
+			instance.logException(level, System.currentTimeMillis(), Thread.currentThread().getName(), exception, 0);
 		}
 	}
 	
-	private static void printException(@NotNull LogLevel level, @NotNull Throwable exception, int depth) {
+	/**
+	 * Logs the structured entry, and then makes it available for reuse
+	 *
+	 * @param entry the entry to log
+	 */
+	static void logEntry(@NotNull LogEntry entry) {
 		Log instance = getInstance();
-		String depthString = createExceptionDepthString(depth);
-		String header1 = String.format("Exception in thread \"%s\" %s: %s", Thread.currentThread().getName(), exception.getClass().getName(), exception.getMessage());
-		String header2 = String.format("Caused by: %s: %s", exception.getClass().getCanonicalName(), exception.getMessage());
-		StackTraceElement[] elements = exception.getStackTrace();
-		instance.logImplementation(level, depthString + header1);
-		instance.logImplementation(level, depthString + header2);
-		for (StackTraceElement e : elements) {
-			instance.logImplementation(level, depthString + "    " + e.toString());
+		entry.setTime(System.currentTimeMillis());
+		try {
+			AsyncLogWriter asyncWriter = instance.asyncWriter;
+			if (asyncWriter != null && asyncWriter.publish(entry.getLevel(), null, null, null, entry.copy()))
+				return;
+			synchronized (instance) {
+				instance.logEntryImplementation(entry);
+			}
+		} finally {
+			entry.finish();
 		}
-		if (exception.getCause() != null)
-			printException(level, exception.getCause(), depth + 1);
+	}
+	
+	private static boolean publish(@NotNull Log instance, @NotNull LogLevel level, @Nullable String str, @Nullable Object[] args, @Nullable Throwable exception, @Nullable LogEntry entry) {
+		AsyncLogWriter asyncWriter = instance.asyncWriter;
+		return asyncWriter != null && asyncWriter.publish(level, str, args, exception, entry);
 	}
 	
 	private static String createExceptionDepthString(int depth) {
@@ -223,4 +675,16 @@ public class Log {
 		public char getChar() { return c; }
 	}
 	
+	/**
+	 * Determines what happens to a message logged asynchronously while the buffer is full. Messages at WARN and above are never dropped, and always wait for space
+	 */
+	public enum OverflowPolicy {
+		/** Waits for space in the buffer */
+		BLOCK,
+		/** Drops TRACE and DATA once the buffer is three quarters full, and INFO once it is completely full */
+		DROP_LOW_LEVELS,
+		/** Keeps one in every 16 messages below WARN once the buffer is three quarters full, and drops them once it is completely full */
+		SAMPLE
+	}
+	
 }
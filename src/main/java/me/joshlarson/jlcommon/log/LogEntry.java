@@ -0,0 +1,345 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log;
+
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A structured log message: a plain message followed by key-value fields, built with {@link Log#at(LogLevel, String)} and finished with {@link #log()}. Fields are passed through to
+ * every {@link StructuredLogWrapper} as they are, and appended to the line as {@code key=value} for every other wrapper. Primitive values are stored without boxing.
+ * <p>
+ * Entries are reused per thread, so an entry must not be kept after calling {@link #log()}, and wrappers must not keep the entries they receive. If the level is disabled, the
+ * entry ignores every field and is never logged.
+ */
+public final class LogEntry {
+	
+	static final LogEntry DISABLED = new LogEntry(false);
+	
+	private final boolean enabled;
+	private LogLevel level;
+	private long time;
+	private CharSequence message;
+	private String [] keys;
+	private FieldType [] types;
+	private long [] primitives;
+	private Object [] objects;
+	private int size;
+	private boolean pending;
+	
+	LogEntry() {
+		this(true);
+	}
+	
+	private LogEntry(boolean enabled) {
+		this.enabled = enabled;
+		this.level = LogLevel.TRACE;
+		this.time = 0;
+		this.message = "";
+		this.keys = new String[8];
+		this.types = new FieldType[8];
+		this.primitives = new long[8];
+		this.objects = new Object[8];
+		this.size = 0;
+		this.pending = false;
+	}
+	
+	/**
+	 * Adds a field
+	 *
+	 * @param key   the field name
+	 * @param value the field value
+	 * @return this entry
+	 */
+	@NotNull
+	public LogEntry kv(@NotNull String key, @Nullable Object value) {
+		if (enabled)
+			add(key, FieldType.OBJECT, 0, value);
+		return this;
+	}
+	
+	/**
+	 * Adds an integer field without boxing
+	 *
+	 * @param key   the field name
+	 * @param value the field value
+	 * @return this entry
+	 */
+	@NotNull
+	public LogEntry kv(@NotNull String key, long value) {
+		if (enabled)
+			add(key, FieldType.LONG, value, null);
+		return this;
+	}
+	
+	/**
+	 * Adds a floating point field without boxing
+	 *
+	 * @param key   the field name
+	 * @param value the field value
+	 * @return this entry
+	 */
+	@NotNull
+	public LogEntry kv(@NotNull String key, double value) {
+		if (enabled)
+			add(key, FieldType.DOUBLE, Double.doubleToRawLongBits(value), null);
+		return this;
+	}
+	
+	/**
+	 * Adds a boolean field without boxing
+	 *
+	 * @param key   the field name
+	 * @param value the field value
+	 * @return this entry
+	 */
+	@NotNull
+	public LogEntry kv(@NotNull String key, boolean value) {
+		if (enabled)
+			add(key, FieldType.BOOLEAN, value ? 1 : 0, null);
+		return this;
+	}
+	
+	/**
+	 * Logs this entry. The entry must not be used afterwards
+	 */
+	public void log() {
+		if (enabled)
+			Log.logEntry(this);
+	}
+	
+	@NotNull
+	public LogLevel getLevel() {
+		return level;
+	}
+	
+	/**
+	 * Returns the time this entry was logged
+	 *
+	 * @return the time in milliseconds since the epoch
+	 */
+	public long getTime() {
+		return time;
+	}
+	
+	@NotNull
+	public CharSequence getMessage() {
+		return message;
+	}
+	
+	public int getFieldCount() {
+		return size;
+	}
+	
+	@NotNull
+	public String getKey(int index) {
+		checkIndex(index);
+		return keys[index];
+	}
+	
+	@NotNull
+	public FieldType getType(int index) {
+		checkIndex(index);
+		return types[index];
+	}
+	
+	public long getLong(int index) {
+		checkType(index, FieldType.LONG);
+		return primitives[index];
+	}
+	
+	public double getDouble(int index) {
+		checkType(index, FieldType.DOUBLE);
+		return Double.longBitsToDouble(primitives[index]);
+	}
+	
+	public boolean getBoolean(int index) {
+		checkType(index, FieldType.BOOLEAN);
+		return primitives[index] != 0;
+	}
+	
+	@Nullable
+	public Object getObject(int index) {
+		checkType(index, FieldType.OBJECT);
+		return objects[index];
+	}
+	
+	/**
+	 * Returns the value of the field, boxing primitive values
+	 *
+	 * @param index the field index
+	 * @return the field value
+	 */
+	@Nullable
+	public Object getValue(int index) {
+		switch (getType(index)) {
+			case LONG:
+				return primitives[index];
+			case DOUBLE:
+				return Double.longBitsToDouble(primitives[index]);
+			case BOOLEAN:
+				return primitives[index] != 0;
+			case OBJECT:
+			default:
+				return objects[index];
+		}
+	}
+	
+	/**
+	 * Appends each field as {@code key=value}, separated by spaces
+	 *
+	 * @param str the builder to append to
+	 */
+	public void appendFields(@NotNull StringBuilder str) {
+		for (int i = 0; i < size; i++) {
+			str.append(' ').append(keys[i]).append('=');
+			switch (types[i]) {
+				case LONG:
+					str.append(primitives[i]);
+					break;
+				case DOUBLE:
+					str.append(Double.longBitsToDouble(primitives[i]));
+					break;
+				case BOOLEAN:
+					str.append(primitives[i] != 0);
+					break;
+				case OBJECT:
+					if (objects[i] instanceof CharSequence)
+						str.append((CharSequence) objects[i]);
+					else
+						str.append(objects[i]);
+					break;
+			}
+		}
+	}
+	
+	@Override
+	@NotNull
+	public String toString() {
+		StringBuilder str = new StringBuilder(message);
+		appendFields(str);
+		return str.toString();
+	}
+	
+	/**
+	 * Creates a standalone entry without any fields
+	 *
+	 * @param level   the log level
+	 * @param time    the time in milliseconds since the epoch
+	 * @param message the message
+	 * @return the new entry
+	 */
+	@NotNull
+	public static LogEntry of(@NotNull LogLevel level, long time, @NotNull CharSequence message) {
+		return new LogEntry().reset(level, time, message);
+	}
+	
+	boolean isPending() {
+		return pending;
+	}
+	
+	/**
+	 * Starts building this entry, clearing any previous fields
+	 */
+	@NotNull
+	LogEntry start(@NotNull LogLevel level, @NotNull String message) {
+		reset(level, 0, message);
+		pending = true;
+		return this;
+	}
+	
+	@NotNull
+	LogEntry reset(@NotNull LogLevel level, long time, @NotNull CharSequence message) {
+		Arrays.fill(objects, 0, size, null);
+		this.level = level;
+		this.time = time;
+		this.message = message;
+		this.size = 0;
+		return this;
+	}
+	
+	void finish() {
+		Arrays.fill(objects, 0, size, null);
+		size = 0;
+		message = "";
+		pending = false;
+	}
+	
+	void setTime(long time) {
+		this.time = time;
+	}
+	
+	/**
+	 * Copies this entry so that it can be handed to another thread
+	 */
+	@NotNull
+	LogEntry copy() {
+		LogEntry copy = new LogEntry();
+		copy.level = level;
+		copy.time = time;
+		copy.message = message.toString();
+		copy.keys = Arrays.copyOf(keys, size);
+		copy.types = Arrays.copyOf(types, size);
+		copy.primitives = Arrays.copyOf(primitives, size);
+		copy.objects = Arrays.copyOf(objects, size);
+		copy.size = size;
+		return copy;
+	}
+	
+	private void add(@NotNull String key, @NotNull FieldType type, long primitive, @Nullable Object object) {
+		if (size == keys.length) {
+			int capacity = Math.max(8, size * 2);
+			keys = Arrays.copyOf(keys, capacity);
+			types = Arrays.copyOf(types, capacity);
+			primitives = Arrays.copyOf(primitives, capacity);
+			objects = Arrays.copyOf(objects, capacity);
+		}
+		keys[size] = key;
+		types[size] = type;
+		primitives[size] = primitive;
+		objects[size] = object;
+		size++;
+	}
+	
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Field " + index + " out of range [0, " + size + ")");
+	}
+	
+	private void checkType(int index, @NotNull FieldType type) {
+		if (getType(index) != type)
+			throw new IllegalStateException("Field '" + keys[index] + "' is " + types[index] + ", not " + type);
+	}
+	
+	public enum FieldType {
+		LONG,
+		DOUBLE,
+		BOOLEAN,
+		OBJECT
+	}
+	
+}
@@ -0,0 +1,230 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log;
+
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigInteger;
+import java.text.DecimalFormatSymbols;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * Formats log lines into a single reusable buffer. The timestamp up to the second is cached, and the common %s and %d conversions are substituted directly into the buffer, so
+ * formatting a typical line does not allocate. Anything more complicated is handed to a {@link Formatter} that writes into the same buffer. Not thread safe.
+ */
+final class LogFormatter {
+	
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+	
+	private final DateTimeFormatter timeFormat;
+	private final StringBuilder timePrefix;
+	private final boolean asciiDigits;
+	private final CharSequence message;
+	private StringBuilder builder;
+	private Formatter formatter;
+	private long cachedSecond;
+	private int messageStart;
+	
+	public LogFormatter() {
+		Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+		this.timeFormat = DateTimeFormatter.ofPattern("dd-MM-yy HH:mm:ss").withZone(ZoneId.systemDefault());
+		this.timePrefix = new StringBuilder(24);
+		this.asciiDigits = DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0';
+		this.builder = new StringBuilder(256);
+		this.formatter = new Formatter(builder, locale);
+		this.cachedSecond = Long.MIN_VALUE;
+		this.messageStart = 0;
+		this.message = new MessageView();
+	}
+	
+	/**
+	 * Formats the log line into the internal buffer. The returned sequence is only valid until the next call
+	 *
+	 * @param level the log level
+	 * @param time  the time of the message in milliseconds since the epoch
+	 * @param str   the format string
+	 * @param args  the format arguments, if any
+	 * @return the formatted line
+	 */
+	@NotNull
+	public CharSequence format(@NotNull LogLevel level, long time, @NotNull String str, @Nullable Object[] args) {
+		appendPrefix(level, time);
+		if (args == null || args.length == 0)
+			builder.append(str);
+		else
+			appendFormatted(str, args);
+		return builder;
+	}
+	
+	/**
+	 * Formats the structured log entry into the internal buffer, with each field appended as key=value. The returned sequence is only valid until the next call
+	 *
+	 * @param entry the log entry
+	 * @return the formatted line
+	 */
+	@NotNull
+	public CharSequence format(@NotNull LogEntry entry) {
+		appendPrefix(entry.getLevel(), entry.getTime());
+		builder.append(entry.getMessage());
+		entry.appendFields(builder);
+		return builder;
+	}
+	
+	/**
+	 * Returns a view of the last formatted line without the timestamp and level, which is only valid until the next call to format
+	 *
+	 * @return the message of the last formatted line
+	 */
+	@NotNull
+	public CharSequence getMessage() {
+		return message;
+	}
+	
+	private void appendPrefix(@NotNull LogLevel level, long time) {
+		if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+			builder = new StringBuilder(256);
+			formatter = new Formatter(builder, formatter.locale());
+		}
+		builder.setLength(0);
+		appendTimestamp(time);
+		builder.append(' ').append(level.getChar()).append(": ");
+		messageStart = builder.length();
+	}
+	
+	private void appendTimestamp(long time) {
+		long second = Math.floorDiv(time, 1000);
+		if (second != cachedSecond) {
+			timePrefix.setLength(0);
+			timeFormat.formatTo(Instant.ofEpochSecond(second), timePrefix);
+			timePrefix.append('.');
+			cachedSecond = second;
+		}
+		int millis = Math.floorMod(time, 1000);
+		builder.append(timePrefix);
+		builder.append((char) ('0' + millis / 100));
+		builder.append((char) ('0' + millis / 10 % 10));
+		builder.append((char) ('0' + millis % 10));
+	}
+	
+	private void appendFormatted(@NotNull String format, @NotNull Object[] args) {
+		int start = builder.length();
+		int length = format.length();
+		int argIndex = 0;
+		int last = 0;
+		for (int i = format.indexOf('%'); i != -1; i = format.indexOf('%', last)) {
+			if (i + 1 >= length) {
+				appendWithFormatter(start, format, args);
+				return;
+			}
+			builder.append(format, last, i);
+			boolean handled;
+			switch (format.charAt(i + 1)) {
+				case 's':
+					handled = argIndex < args.length && appendString(args[argIndex++]);
+					break;
+				case 'd':
+					handled = argIndex < args.length && appendInteger(args[argIndex++]);
+					break;
+				case '%':
+					builder.append('%');
+					handled = true;
+					break;
+				case 'n':
+					builder.append(System.lineSeparator());
+					handled = true;
+					break;
+				default:
+					handled = false;
+					break;
+			}
+			if (!handled) {
+				appendWithFormatter(start, format, args);
+				return;
+			}
+			last = i + 2;
+		}
+		builder.append(format, last, length);
+	}
+	
+	private boolean appendString(@Nullable Object arg) {
+		if (arg instanceof Formattable)
+			return false;
+		if (arg instanceof CharSequence)
+			builder.append((CharSequence) arg);
+		else
+			builder.append(arg);
+		return true;
+	}
+	
+	private boolean appendInteger(@Nullable Object arg) {
+		if (!asciiDigits)
+			return false;
+		if (arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte)
+			builder.append(((Number) arg).longValue());
+		else if (arg instanceof BigInteger)
+			builder.append(arg);
+		else
+			return false;
+		return true;
+	}
+	
+	private void appendWithFormatter(int start, @NotNull String format, @NotNull Object[] args) {
+		builder.setLength(start);
+		formatter.format(format, args);
+	}
+	
+	private class MessageView implements CharSequence {
+		
+		@Override
+		public int length() {
+			return builder.length() - messageStart;
+		}
+		
+		@Override
+		public char charAt(int index) {
+			return builder.charAt(messageStart + index);
+		}
+		
+		@NotNull
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return builder.subSequence(messageStart + start, messageStart + end);
+		}
+		
+		@NotNull
+		@Override
+		public String toString() {
+			return builder.substring(messageStart);
+		}
+		
+	}
+	
+}
@@ -29,4 +29,33 @@ public interface LogWrapper {
 	
 	void onLog(@NotNull Log.LogLevel level, @NotNull String str);
 	
+	/**
+	 * Called by {@link Log} with a formatted line that lives in a reusable buffer. The sequence is only valid for the duration of this call, so wrappers that can write a
+	 * CharSequence directly should override this to avoid creating a String for every line
+	 *
+	 * @param level the log level
+	 * @param str   the formatted line
+	 */
+	default void onLog(@NotNull Log.LogLevel level, @NotNull CharSequence str) {
+		onLog(level, str.toString());
+	}
+	
+	/**
+	 * Writes out anything this wrapper has buffered. Called by {@link Log#flush()}
+	 */
+	default void flush() {
+		
+	}
+	
+	/**
+	 * Returns the lowest log level that this wrapper prints. {@link Log} skips this wrapper for any message below its minimum level, and discards messages below the minimum level of
+	 * every registered wrapper before they are formatted. Wrappers that change their minimum level after being added must call {@link Log#refreshLevels()}
+	 *
+	 * @return the minimum log level
+	 */
+	@NotNull
+	default Log.LogLevel getMinimumLevel() {
+		return Log.LogLevel.TRACE;
+	}
+	
 }
@@ -0,0 +1,182 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log;
+
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Supplier;
+
+/**
+ * A named view of {@link Log}, usually one per class or package, obtained through {@link Log#getLogger(Class)}. The level of a logger can be changed at runtime with
+ * {@link Log#setLevel(String, LogLevel)}, and is inherited from the closest configured parent name, so TRACE can be enabled for a single subsystem without enabling it
+ * everywhere. Each logger caches its effective level, so checking whether a message is printed is a single volatile read.
+ */
+public final class Logger {
+	
+	private final String name;
+	private volatile int threshold;
+	
+	Logger(@NotNull String name, int threshold) {
+		this.name = name;
+		this.threshold = threshold;
+	}
+	
+	@NotNull
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Determines whether or not messages at the specified level are printed for this logger
+	 *
+	 * @param level the log level to check
+	 * @return TRUE if messages at this level are printed, FALSE otherwise
+	 */
+	public boolean isEnabled(@NotNull LogLevel level) {
+		return level.ordinal() >= threshold;
+	}
+	
+	/**
+	 * Starts a structured log entry at the specified level for this logger. See {@link Log#at(LogLevel, String)}
+	 *
+	 * @param level   the log level
+	 * @param message the plain message, which is not formatted
+	 * @return the entry to add fields to
+	 */
+	@NotNull
+	public LogEntry at(@NotNull LogLevel level, @NotNull String message) {
+		return isEnabled(level) ? Log.startEntry(level, message) : LogEntry.DISABLED;
+	}
+	
+	@NotNull
+	public LogEntry trace(@NotNull String message) {
+		return at(LogLevel.TRACE, message);
+	}
+	
+	@NotNull
+	public LogEntry data(@NotNull String message) {
+		return at(LogLevel.DATA, message);
+	}
+	
+	@NotNull
+	public LogEntry info(@NotNull String message) {
+		return at(LogLevel.INFO, message);
+	}
+	
+	@NotNull
+	public LogEntry warn(@NotNull String message) {
+		return at(LogLevel.WARN, message);
+	}
+	
+	@NotNull
+	public LogEntry error(@NotNull String message) {
+		return at(LogLevel.ERROR, message);
+	}
+	
+	public void t(@NotNull String message, Object... args) {
+		log(LogLevel.TRACE, message, args);
+	}
+	
+	public void t(@NotNull Supplier<String> message) {
+		log(LogLevel.TRACE, message);
+	}
+	
+	public void d(@NotNull String message, Object... args) {
+		log(LogLevel.DATA, message, args);
+	}
+	
+	public void d(@NotNull Supplier<String> message) {
+		log(LogLevel.DATA, message);
+	}
+	
+	public void i(@NotNull String message, Object... args) {
+		log(LogLevel.INFO, message, args);
+	}
+	
+	public void i(@NotNull Supplier<String> message) {
+		log(LogLevel.INFO, message);
+	}
+	
+	public void w(@NotNull String message, Object... args) {
+		log(LogLevel.WARN, message, args);
+	}
+	
+	public void w(@NotNull Supplier<String> message) {
+		log(LogLevel.WARN, message);
+	}
+	
+	public void w(@NotNull Throwable exception) {
+		printException(LogLevel.WARN, exception);
+	}
+	
+	public void e(@NotNull String message, Object... args) {
+		log(LogLevel.ERROR, message, args);
+	}
+	
+	public void e(@NotNull Supplier<String> message) {
+		log(LogLevel.ERROR, message);
+	}
+	
+	public void e(@NotNull Throwable exception) {
+		printException(LogLevel.ERROR, exception);
+	}
+	
+	public void a(@NotNull String message, Object... args) {
+		log(LogLevel.ASSERT, message, args);
+	}
+	
+	public void a(@NotNull Supplier<String> message) {
+		log(LogLevel.ASSERT, message);
+	}
+	
+	public void a(@NotNull Throwable exception) {
+		printException(LogLevel.ASSERT, exception);
+	}
+	
+	@Override
+	public String toString() {
+		return "Logger[" + name + "]";
+	}
+	
+	void setThreshold(int threshold) {
+		this.threshold = threshold;
+	}
+	
+	private void log(@NotNull LogLevel level, @NotNull String str, Object... args) {
+		if (isEnabled(level))
+			Log.write(level, str, args);
+	}
+	
+	private void log(@NotNull LogLevel level, @NotNull Supplier<String> message) {
+		if (isEnabled(level))
+			Log.write(level, message.get());
+	}
+	
+	private void printException(@NotNull LogLevel level, @NotNull Throwable exception) {
+		if (isEnabled(level))
+			Log.writeException(level, exception);
+	}
+	
+}
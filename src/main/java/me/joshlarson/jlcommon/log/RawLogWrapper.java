@@ -0,0 +1,49 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A LogWrapper that receives the format string and arguments of each message instead of a formatted line, so that it can store or transmit them without formatting. If only raw
+ * wrappers are registered, {@link Log} never formats a line at all.
+ */
+public interface RawLogWrapper extends LogWrapper {
+	
+	/**
+	 * Called for each message that is logged. The arguments must not be retained after this call returns
+	 *
+	 * @param level  the log level
+	 * @param time   the time of the message in milliseconds since the epoch
+	 * @param format the format string, or the complete message if there are no arguments
+	 * @param args   the format arguments, possibly empty
+	 */
+	void onLog(@NotNull Log.LogLevel level, long time, @NotNull String format, @NotNull Object[] args);
+	
+	@Override
+	default void onLog(@NotNull Log.LogLevel level, @NotNull String str) {
+		onLog(level, System.currentTimeMillis(), str, new Object[0]);
+	}
+	
+}
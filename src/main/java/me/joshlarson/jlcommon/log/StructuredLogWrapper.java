@@ -0,0 +1,46 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A LogWrapper that receives each message as a {@link LogEntry}, with the key-value fields of structured messages passed through as they are. Plain messages arrive as entries
+ * without fields whose message is already formatted.
+ */
+public interface StructuredLogWrapper extends LogWrapper {
+	
+	/**
+	 * Called for each message that is logged. The entry is reused after this call returns, so it must not be retained
+	 *
+	 * @param entry the log entry
+	 */
+	void onLog(@NotNull LogEntry entry);
+	
+	@Override
+	default void onLog(@NotNull Log.LogLevel level, @NotNull String str) {
+		onLog(LogEntry.of(level, System.currentTimeMillis(), str));
+	}
+	
+}
@@ -37,7 +37,7 @@ public class AnsiColorLogWrapper implements LogWrapper {
 	private static final String ERROR_PREFIX = "\033[0;30;103m";
 	private static final String ASSERT_PREFIX = "\033[1;4;30;41m";
 	
-	private final Log.LogLevel level;
+	private volatile Log.LogLevel level;
 	private final String tracePrefix;
 	private final String dataPrefix;
 	private final String infoPrefix;
@@ -82,6 +82,22 @@ public class AnsiColorLogWrapper implements LogWrapper {
 		this.assertPrefix = assertPrefix;
 	}
 	
+	@NotNull
+	@Override
+	public LogLevel getMinimumLevel() {
+		return level;
+	}
+	
+	/**
+	 * Changes the minimum LogLevel to print, taking effect for the next message
+	 *
+	 * @param level the minimum LogLevel to print
+	 */
+	public void setMinimumLevel(@NotNull LogLevel level) {
+		this.level = level;
+		Log.refreshLevels();
+	}
+	
 	@Override
 	public void onLog(@NotNull Log.LogLevel level, @NotNull String str) {
 		if (this.level.compareTo(level) > 0)
@@ -0,0 +1,194 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IllegalFormatException;
+import java.util.List;
+
+/**
+ * Renders a file written by {@link BinaryLogWrapper} as the same text lines the text wrappers would have written. A record that was cut off at the end of the file, for example by a
+ * crash, is treated as the end of the file.
+ * <p>
+ * Can also be run from the command line, printing every file that is passed as an argument to standard output.
+ */
+public final class BinaryLogDecoder implements Closeable {
+	
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yy HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+	private static final LogLevel [] LEVELS = LogLevel.values();
+	
+	private final DataInputStream input;
+	private final List<String> formats;
+	
+	/**
+	 * Creates a decoder and reads the file header
+	 *
+	 * @param is the binary log to decode
+	 * @throws IOException if the stream could not be read or is not a binary log
+	 */
+	public BinaryLogDecoder(@NotNull InputStream is) throws IOException {
+		this.input = new DataInputStream(new BufferedInputStream(is));
+		this.formats = new ArrayList<>();
+		if (input.readInt() != BinaryLogWrapper.MAGIC)
+			throw new IOException("Not a binary log");
+		short version = input.readShort();
+		if (version != BinaryLogWrapper.VERSION)
+			throw new IOException("Unsupported binary log version: " + version);
+	}
+	
+	/**
+	 * Reads the next message and formats it as a text line
+	 *
+	 * @return the formatted line, or null at the end of the log
+	 * @throws IOException if the stream could not be read or is corrupted
+	 */
+	@Nullable
+	public String readLine() throws IOException {
+		try {
+			while (true) {
+				int type = input.read();
+				if (type == -1)
+					return null;
+				if (type == BinaryLogWrapper.FORMAT_RECORD)
+					readFormat();
+				else if (type == BinaryLogWrapper.LOG_RECORD)
+					return readMessage();
+				else
+					throw new IOException("Unknown record type: " + type);
+			}
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+	
+	private void readFormat() throws IOException {
+		int id = input.readInt();
+		String format = readString();
+		if (id != formats.size())
+			throw new IOException("Unexpected format ID: " + id);
+		formats.add(format);
+	}
+	
+	@NotNull
+	private String readMessage() throws IOException {
+		int level = input.readUnsignedByte();
+		long time = input.readLong();
+		int id = input.readInt();
+		String format;
+		if (id == -1)
+			format = readString();
+		else if (id >= 0 && id < formats.size())
+			format = formats.get(id);
+		else
+			throw new IOException("Unknown format ID: " + id);
+		Object [] args = new Object[input.readUnsignedByte()];
+		for (int i = 0; i < args.length; i++)
+			args[i] = readArgument();
+		if (level >= LEVELS.length)
+			throw new IOException("Unknown log level: " + level);
+		return TIME_FORMAT.format(Instant.ofEpochMilli(time)) + ' ' + LEVELS[level].getChar() + ": " + formatMessage(format, args);
+	}
+	
+	@Nullable
+	private Object readArgument() throws IOException {
+		int tag = input.readUnsignedByte();
+		switch (tag) {
+			case BinaryLogWrapper.NULL_TAG:
+				return null;
+			case BinaryLogWrapper.BOOLEAN_TAG:
+				return input.readBoolean();
+			case BinaryLogWrapper.BYTE_TAG:
+				return input.readByte();
+			case BinaryLogWrapper.SHORT_TAG:
+				return input.readShort();
+			case BinaryLogWrapper.CHAR_TAG:
+				return input.readChar();
+			case BinaryLogWrapper.INT_TAG:
+				return input.readInt();
+			case BinaryLogWrapper.LONG_TAG:
+				return input.readLong();
+			case BinaryLogWrapper.FLOAT_TAG:
+				return input.readFloat();
+			case BinaryLogWrapper.DOUBLE_TAG:
+				return input.readDouble();
+			case BinaryLogWrapper.STRING_TAG:
+				return readString();
+			default:
+				throw new IOException("Unknown argument type: " + tag);
+		}
+	}
+	
+	@NotNull
+	private String readString() throws IOException {
+		int length = input.readInt();
+		if (length < 0)
+			throw new IOException("Invalid string length: " + length);
+		byte [] data = new byte[length];
+		input.readFully(data);
+		return new String(data, StandardCharsets.UTF_8);
+	}
+	
+	@NotNull
+	static String formatMessage(@NotNull String format, @NotNull Object[] args) {
+		if (args.length == 0)
+			return format;
+		try {
+			return String.format(format, args);
+		} catch (IllegalFormatException e) {
+			// Arguments that were stored as strings no longer match conversions like %x
+			return format + ' ' + Arrays.toString(args);
+		}
+	}
+	
+	public static void main(String [] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: BinaryLogDecoder <file>...");
+			System.exit(1);
+		}
+		PrintStream out = System.out;
+		for (String file : args) {
+			try (BinaryLogDecoder decoder = new BinaryLogDecoder(new FileInputStream(file))) {
+				String line;
+				while ((line = decoder.readLine()) != null)
+					out.println(line);
+			}
+		}
+	}
+	
+}
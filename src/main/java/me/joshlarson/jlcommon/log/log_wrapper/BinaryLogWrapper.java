@@ -0,0 +1,216 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import me.joshlarson.jlcommon.log.RawLogWrapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes each message in a compact binary form: the level, the timestamp as a long, an ID for the format string and the raw arguments. Each format string with arguments is written to
+ * the file once, the first time it is used. Nothing is formatted while logging - use {@link BinaryLogDecoder} to render the file as text.
+ * <p>
+ * The file starts with the magic number {@code JLBL} and a short version, followed by records. A format record is the byte {@code 'F'}, an int ID and a string. A log record is the
+ * byte {@code 'L'}, the level ordinal as a byte, the time as a long, the format ID as an int (or -1 followed by the string for messages without arguments and formats that did not
+ * fit in the table), an unsigned byte argument count, and each argument as a type tag followed by its value. Strings are an int length followed by UTF-8 bytes, and everything is
+ * big-endian. Messages with more than 255 arguments are formatted when they are logged and written without arguments.
+ */
+public class BinaryLogWrapper extends StreamLogWrapper implements RawLogWrapper {
+	
+	static final int MAGIC = 0x4A4C424C;
+	static final short VERSION = 1;
+	static final byte FORMAT_RECORD = 'F';
+	static final byte LOG_RECORD = 'L';
+	static final byte NULL_TAG = 'N';
+	static final byte BOOLEAN_TAG = 'Z';
+	static final byte BYTE_TAG = 'B';
+	static final byte SHORT_TAG = 'S';
+	static final byte CHAR_TAG = 'C';
+	static final byte INT_TAG = 'I';
+	static final byte LONG_TAG = 'J';
+	static final byte FLOAT_TAG = 'F';
+	static final byte DOUBLE_TAG = 'D';
+	static final byte STRING_TAG = 'T';
+	
+	private static final int MAX_FORMATS = 65536;
+	private static final int MAX_ARGUMENTS = 255;
+	
+	private final Map<String, Integer> formats;
+	private final Utf8Encoder stringEncoder;
+	private byte [] record;
+	private int length;
+	
+	/**
+	 * Creates a BinaryLogWrapper that flushes after every message
+	 *
+	 * @param file the file to write to, which is truncated if it already exists
+	 * @throws IOException if the file could not be opened
+	 */
+	public BinaryLogWrapper(@NotNull File file) throws IOException {
+		this(file, FlushPolicy.IMMEDIATE);
+	}
+	
+	/**
+	 * Creates a BinaryLogWrapper with a custom flush policy
+	 *
+	 * @param file   the file to write to, which is truncated if it already exists
+	 * @param policy when to write buffered messages to the file
+	 * @throws IOException if the file could not be opened
+	 */
+	public BinaryLogWrapper(@NotNull File file, @NotNull FlushPolicy policy) throws IOException {
+		super(FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), policy);
+		this.formats = new HashMap<>();
+		this.stringEncoder = new Utf8Encoder(256);
+		this.record = new byte[256];
+		this.length = 0;
+		putInt(MAGIC);
+		putShort(VERSION);
+		write(LogLevel.TRACE, record, length);
+	}
+	
+	@Override
+	public void onLog(@NotNull LogLevel level, @NotNull String str) {
+		onLog(level, System.currentTimeMillis(), str, new Object[0]);
+	}
+	
+	@Override
+	public void onLog(@NotNull LogLevel level, @NotNull CharSequence str) {
+		onLog(level, str.toString());
+	}
+	
+	@Override
+	public synchronized void onLog(@NotNull LogLevel level, long time, @NotNull String format, @NotNull Object[] args) {
+		if (args.length > MAX_ARGUMENTS) {
+			// The argument count is a single byte, so rather than losing arguments the message is formatted now
+			onLog(level, time, BinaryLogDecoder.formatMessage(format, args), new Object[0]);
+			return;
+		}
+		length = 0;
+		// Messages without arguments are usually built at runtime, so only real format strings are added to the table
+		Integer id = args.length == 0 ? null : formats.get(format);
+		if (id == null && args.length > 0 && formats.size() < MAX_FORMATS) {
+			id = formats.size();
+			formats.put(format, id);
+			putByte(FORMAT_RECORD);
+			putInt(id);
+			putString(format);
+		}
+		putByte(LOG_RECORD);
+		putByte((byte) level.ordinal());
+		putLong(time);
+		if (id == null) {
+			putInt(-1);
+			putString(format);
+		} else {
+			putInt(id);
+		}
+		putByte((byte) args.length);
+		for (Object arg : args)
+			putArgument(arg);
+		write(level, record, length);
+	}
+	
+	private void putArgument(@Nullable Object arg) {
+		if (arg == null) {
+			putByte(NULL_TAG);
+		} else if (arg instanceof Integer) {
+			putByte(INT_TAG);
+			putInt((Integer) arg);
+		} else if (arg instanceof Long) {
+			putByte(LONG_TAG);
+			putLong((Long) arg);
+		} else if (arg instanceof Double) {
+			putByte(DOUBLE_TAG);
+			putLong(Double.doubleToRawLongBits((Double) arg));
+		} else if (arg instanceof Float) {
+			putByte(FLOAT_TAG);
+			putInt(Float.floatToRawIntBits((Float) arg));
+		} else if (arg instanceof Boolean) {
+			putByte(BOOLEAN_TAG);
+			putByte((byte) ((Boolean) arg ? 1 : 0));
+		} else if (arg instanceof Short) {
+			putByte(SHORT_TAG);
+			putShort((Short) arg);
+		} else if (arg instanceof Byte) {
+			putByte(BYTE_TAG);
+			putByte((Byte) arg);
+		} else if (arg instanceof Character) {
+			putByte(CHAR_TAG);
+			putShort((short) (char) (Character) arg);
+		} else {
+			putByte(STRING_TAG);
+			putString(arg instanceof CharSequence ? (CharSequence) arg : String.valueOf(arg));
+		}
+	}
+	
+	private void putString(@NotNull CharSequence str) {
+		stringEncoder.clear();
+		stringEncoder.append(str);
+		int strLength = stringEncoder.getLength();
+		putInt(strLength);
+		ensureCapacity(strLength);
+		System.arraycopy(stringEncoder.getBuffer(), 0, record, length, strLength);
+		length += strLength;
+	}
+	
+	private void putByte(byte b) {
+		ensureCapacity(1);
+		record[length++] = b;
+	}
+	
+	private void putShort(short s) {
+		ensureCapacity(2);
+		record[length++] = (byte) (s >> 8);
+		record[length++] = (byte) s;
+	}
+	
+	private void putInt(int i) {
+		ensureCapacity(4);
+		for (int shift = 24; shift >= 0; shift -= 8)
+			record[length++] = (byte) (i >> shift);
+	}
+	
+	private void putLong(long l) {
+		ensureCapacity(8);
+		for (int shift = 56; shift >= 0; shift -= 8)
+			record[length++] = (byte) (l >> shift);
+	}
+	
+	private void ensureCapacity(int additional) {
+		if (length + additional <= record.length)
+			return;
+		byte [] expanded = new byte[Math.max(record.length * 2, length + additional)];
+		System.arraycopy(record, 0, expanded, 0, length);
+		record = expanded;
+	}
+	
+}
@@ -30,7 +30,7 @@ import org.jetbrains.annotations.NotNull;
 
 public class ConsoleLogWrapper implements LogWrapper {
 	
-	private final Log.LogLevel level;
+	private volatile Log.LogLevel level;
 	
 	/**
 	 * Creates a ConsoleLogWrapper with a LogLevel of TRACE
@@ -48,6 +48,22 @@ public class ConsoleLogWrapper implements LogWrapper {
 		this.level = level;
 	}
 	
+	@NotNull
+	@Override
+	public LogLevel getMinimumLevel() {
+		return level;
+	}
+	
+	/**
+	 * Changes the minimum LogLevel to print, taking effect for the next message
+	 *
+	 * @param level the minimum LogLevel to print
+	 */
+	public void setMinimumLevel(@NotNull LogLevel level) {
+		this.level = level;
+		Log.refreshLevels();
+	}
+	
 	@Override
 	public void onLog(@NotNull Log.LogLevel level, @NotNull String str) {
 		if (this.level.compareTo(level) > 0)
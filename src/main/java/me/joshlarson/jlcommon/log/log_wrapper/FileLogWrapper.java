@@ -26,26 +26,44 @@ package me.joshlarson.jlcommon.log.log_wrapper;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 public class FileLogWrapper extends StreamLogWrapper {
 	
+	/**
+	 * Creates a FileLogWrapper that flushes after every line
+	 *
+	 * @param file the file to write to, which is truncated if it already exists
+	 */
 	public FileLogWrapper(@NotNull File file) {
-		super(safeCreateOutputStream(file));
+		this(file, FlushPolicy.IMMEDIATE);
+	}
+	
+	/**
+	 * Creates a FileLogWrapper with a custom flush policy
+	 *
+	 * @param file   the file to write to, which is truncated if it already exists
+	 * @param policy when to write buffered lines to the file
+	 */
+	public FileLogWrapper(@NotNull File file, @NotNull FlushPolicy policy) {
+		super(safeOpenChannel(file), policy);
 	}
 	
 	@NotNull
-	private static OutputStream safeCreateOutputStream(@NotNull File file) {
+	private static WritableByteChannel safeOpenChannel(@NotNull File file) {
 		try {
-			return new FileOutputStream(file);
-		} catch (FileNotFoundException e) {
+			return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException e) {
 			e.printStackTrace();
-			return new OutputStream() {
+			return Channels.newChannel(new OutputStream() {
 				
 				public void write(int b) { }
-			};
+			});
 		}
 	}
 	
@@ -0,0 +1,95 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Determines when a {@link StreamLogWrapper} writes its buffered lines to the underlying stream. A flush happens once enough bytes are buffered, once the maximum delay has passed,
+ * or right after a line at or above the immediate level - whichever comes first.
+ */
+public final class FlushPolicy {
+	
+	/** Flushes after every line */
+	public static final FlushPolicy IMMEDIATE = new FlushPolicy(0, 0, TimeUnit.MILLISECONDS, LogLevel.TRACE);
+	
+	private final int maxBufferedBytes;
+	private final long maxDelayNanos;
+	private final LogLevel immediateLevel;
+	
+	/**
+	 * Creates a new flush policy
+	 *
+	 * @param maxBufferedBytes the number of buffered bytes that triggers a flush
+	 * @param maxDelay         the longest time a line may stay buffered, or 0 to only flush by size and level
+	 * @param unit             the unit of maxDelay
+	 * @param immediateLevel   the lowest log level that is flushed immediately
+	 */
+	public FlushPolicy(int maxBufferedBytes, long maxDelay, @NotNull TimeUnit unit, @NotNull LogLevel immediateLevel) {
+		if (maxBufferedBytes < 0)
+			throw new IllegalArgumentException("maxBufferedBytes cannot be negative");
+		if (maxDelay < 0)
+			throw new IllegalArgumentException("maxDelay cannot be negative");
+		this.maxBufferedBytes = maxBufferedBytes;
+		this.maxDelayNanos = unit.toNanos(maxDelay);
+		this.immediateLevel = immediateLevel;
+	}
+	
+	public int getMaxBufferedBytes() {
+		return maxBufferedBytes;
+	}
+	
+	public long getMaxDelay(@NotNull TimeUnit unit) {
+		return unit.convert(maxDelayNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	@NotNull
+	public LogLevel getImmediateLevel() {
+		return immediateLevel;
+	}
+	
+	/**
+	 * Determines whether or not this policy can leave lines buffered after they are written
+	 *
+	 * @return TRUE if lines may be buffered, FALSE if every line is flushed immediately
+	 */
+	public boolean isBuffering() {
+		return maxBufferedBytes > 0 && immediateLevel.compareTo(LogLevel.TRACE) > 0;
+	}
+	
+	/**
+	 * Determines whether or not the buffer should be flushed after writing a line
+	 *
+	 * @param level         the level of the line that was just written
+	 * @param bufferedBytes the number of bytes that are currently buffered
+	 * @return TRUE if the buffer should be flushed, FALSE otherwise
+	 */
+	public boolean isFlushRequired(@NotNull LogLevel level, int bufferedBytes) {
+		return bufferedBytes >= maxBufferedBytes || level.compareTo(immediateLevel) >= 0;
+	}
+	
+}
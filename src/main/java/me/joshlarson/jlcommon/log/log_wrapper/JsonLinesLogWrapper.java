@@ -0,0 +1,175 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import me.joshlarson.jlcommon.log.LogEntry;
+import me.joshlarson.jlcommon.log.StructuredLogWrapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes each message as one JSON object per line, for example
+ * <pre>{@code {"time":1539820800000,"level":"INFO","message":"Player connected","player":"abc","latency":1520}}</pre>
+ * The time is in milliseconds since the epoch, and the fields of structured entries follow the message as they are, so numbers and booleans stay unquoted. Fields named
+ * {@code time}, {@code level} or {@code message} are written as {@code fields.time} and so on, so that every object has unique keys. Lines are built in a reusable buffer and
+ * encoded straight into the output buffer.
+ */
+public class JsonLinesLogWrapper extends StreamLogWrapper implements StructuredLogWrapper {
+	
+	private static final char [] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
+	private final StringBuilder json;
+	private final Utf8Encoder encoder;
+	
+	/**
+	 * Creates a JsonLinesLogWrapper that flushes after every line
+	 *
+	 * @param os the output stream to write to
+	 */
+	public JsonLinesLogWrapper(@NotNull OutputStream os) {
+		this(os, FlushPolicy.IMMEDIATE);
+	}
+	
+	/**
+	 * Creates a JsonLinesLogWrapper with a custom flush policy
+	 *
+	 * @param os     the output stream to write to
+	 * @param policy when to write buffered lines to the output stream
+	 */
+	public JsonLinesLogWrapper(@NotNull OutputStream os, @NotNull FlushPolicy policy) {
+		super(os, policy);
+		this.json = new StringBuilder(256);
+		this.encoder = new Utf8Encoder(1024);
+	}
+	
+	/**
+	 * Creates a JsonLinesLogWrapper that writes to a channel with a custom flush policy
+	 *
+	 * @param channel the channel to write to
+	 * @param policy  when to write buffered lines to the channel
+	 */
+	public JsonLinesLogWrapper(@NotNull WritableByteChannel channel, @NotNull FlushPolicy policy) {
+		super(channel, policy);
+		this.json = new StringBuilder(256);
+		this.encoder = new Utf8Encoder(1024);
+	}
+	
+	@Override
+	public void onLog(@NotNull LogLevel level, @NotNull String str) {
+		onLog(LogEntry.of(level, System.currentTimeMillis(), str));
+	}
+	
+	@Override
+	public void onLog(@NotNull LogLevel level, @NotNull CharSequence str) {
+		onLog(LogEntry.of(level, System.currentTimeMillis(), str));
+	}
+	
+	@Override
+	public synchronized void onLog(@NotNull LogEntry entry) {
+		json.setLength(0);
+		json.append("{\"time\":").append(entry.getTime());
+		json.append(",\"level\":\"").append(entry.getLevel().name()).append('"');
+		json.append(",\"message\":");
+		appendString(entry.getMessage());
+		for (int i = 0; i < entry.getFieldCount(); i++) {
+			String key = entry.getKey(i);
+			json.append(',');
+			appendString(isReserved(key) ? "fields." + key : key);
+			json.append(':');
+			switch (entry.getType(i)) {
+				case LONG:
+					json.append(entry.getLong(i));
+					break;
+				case DOUBLE:
+					appendDouble(entry.getDouble(i));
+					break;
+				case BOOLEAN:
+					json.append(entry.getBoolean(i));
+					break;
+				case OBJECT:
+					appendObject(entry.getObject(i));
+					break;
+			}
+		}
+		json.append("}\n");
+		encoder.clear();
+		encoder.append(json);
+		write(entry.getLevel(), encoder.getBuffer(), encoder.getLength());
+	}
+	
+	private static boolean isReserved(@NotNull String key) {
+		return key.equals("time") || key.equals("level") || key.equals("message");
+	}
+	
+	private void appendObject(@Nullable Object value) {
+		if (value == null || value instanceof Boolean || value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte || value instanceof BigInteger || value instanceof BigDecimal)
+			json.append(value);
+		else if (value instanceof Double)
+			appendDouble((Double) value);
+		else if (value instanceof Float && Float.isFinite((Float) value))
+			json.append((float) (Float) value);
+		else if (value instanceof Float)
+			appendDouble((Float) value);
+		else if (value instanceof CharSequence)
+			appendString((CharSequence) value);
+		else
+			appendString(String.valueOf(value));
+	}
+	
+	private void appendDouble(double value) {
+		// JSON has no representation for NaN or the infinities
+		if (Double.isFinite(value))
+			json.append(value);
+		else
+			json.append('"').append(value).append('"');
+	}
+	
+	private void appendString(@NotNull CharSequence str) {
+		json.append('"');
+		for (int i = 0, length = str.length(); i < length; i++) {
+			char c = str.charAt(i);
+			switch (c) {
+				case '"':	json.append("\\\""); break;
+				case '\\':	json.append("\\\\"); break;
+				case '\n':	json.append("\\n"); break;
+				case '\r':	json.append("\\r"); break;
+				case '\t':	json.append("\\t"); break;
+				default:
+					if (c < 0x20)
+						json.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+					else
+						json.append(c);
+					break;
+			}
+		}
+		json.append('"');
+	}
+	
+}
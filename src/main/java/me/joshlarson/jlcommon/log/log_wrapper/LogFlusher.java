@@ -0,0 +1,147 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.log.Log;
+import me.joshlarson.jlcommon.log.LogWrapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flushes buffering wrappers periodically on a shared daemon thread, and one last time when the JVM shuts down. Wrappers are only weakly referenced, so a wrapper that is discarded
+ * without being closed can still be garbage collected
+ */
+final class LogFlusher {
+	
+	private static final Set<LogWrapper> WRAPPERS = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+	private static final ScheduledExecutorService EXECUTOR = createExecutor();
+	
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(LogFlusher::flushAll, "log-flusher-shutdown"));
+	}
+	
+	private LogFlusher() {
+		
+	}
+	
+	/**
+	 * Flushes the wrapper when the JVM shuts down, and every period if the period is positive
+	 *
+	 * @param wrapper     the wrapper to flush
+	 * @param periodNanos the time between periodic flushes, or 0 to only flush on shutdown
+	 * @return the periodic flush task, or null if there is none
+	 */
+	@Nullable
+	public static ScheduledFuture<?> register(@NotNull LogWrapper wrapper, long periodNanos) {
+		WRAPPERS.add(wrapper);
+		if (periodNanos <= 0)
+			return null;
+		PeriodicFlush task = new PeriodicFlush(wrapper);
+		task.future = EXECUTOR.scheduleAtFixedRate(task, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+		return task.future;
+	}
+	
+	public static void unregister(@NotNull LogWrapper wrapper, @Nullable ScheduledFuture<?> task) {
+		WRAPPERS.remove(wrapper);
+		if (task != null)
+			task.cancel(false);
+	}
+	
+	/**
+	 * Runs background work for a wrapper on the flusher thread
+	 *
+	 * @param task the task to run
+	 */
+	public static void execute(@NotNull Runnable task) {
+		EXECUTOR.execute(task);
+	}
+	
+	private static void flushAll() {
+		Log.flush();
+		List<LogWrapper> wrappers;
+		synchronized (WRAPPERS) {
+			wrappers = new ArrayList<>(WRAPPERS);
+		}
+		for (LogWrapper wrapper : wrappers)
+			flush(wrapper);
+	}
+	
+	private static void flush(@NotNull LogWrapper wrapper) {
+		try {
+			wrapper.flush();
+		} catch (Throwable t) {
+			t.printStackTrace();
+		}
+	}
+	
+	@NotNull
+	private static ScheduledExecutorService createExecutor() {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "log-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		return executor;
+	}
+	
+	/**
+	 * Flushes a wrapper without keeping it reachable, and cancels itself once the wrapper has been garbage collected
+	 */
+	private static class PeriodicFlush implements Runnable {
+		
+		private final WeakReference<LogWrapper> wrapper;
+		private volatile ScheduledFuture<?> future;
+		
+		public PeriodicFlush(@NotNull LogWrapper wrapper) {
+			this.wrapper = new WeakReference<>(wrapper);
+			this.future = null;
+		}
+		
+		@Override
+		public void run() {
+			LogWrapper wrapper = this.wrapper.get();
+			if (wrapper != null) {
+				flush(wrapper);
+				return;
+			}
+			ScheduledFuture<?> future = this.future;
+			if (future != null)
+				future.cancel(false);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,298 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.log.Log;
+import me.joshlarson.jlcommon.log.LogWrapper;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Appends each line as UTF-8 into a memory-mapped segment file, using the same FileChannel.map approach as {@link me.joshlarson.jlcommon.data.FileBackedBuffer}. Writing a line is a
+ * memory copy, and because the pages belong to the operating system, every line that was written survives a crash of the JVM. Pages are synced to disk periodically on a background
+ * thread.
+ * <p>
+ * Segments are named {@code <name>-<index><extension>}. When a line does not fit in the rest of a segment, logging continues in the next segment, which has already been created and pre-faulted in the
+ * background, and the full segment is synced and truncated to its written length. The active segment is padded with zeros after the last line until it is closed. If the next
+ * segment cannot be created, as much of the line as fits is kept in the full segment and the next line tries again.
+ */
+public class MappedLogWrapper implements LogWrapper {
+	
+	private static final int PAGE_SIZE = 4096;
+	
+	private final Path directory;
+	private final String stem;
+	private final String extension;
+	private final int segmentSize;
+	private final Utf8Encoder encoder;
+	private final ScheduledFuture<?> periodicSync;
+	private volatile Segment current;
+	private CompletableFuture<Segment> next;
+	private int nextIndex;
+	private boolean closed;
+	
+	/**
+	 * Creates a MappedLogWrapper with 64 MiB segments that are synced to disk every second
+	 *
+	 * @param file the base file name, which is suffixed with the segment index
+	 * @throws IOException if the first segment could not be created
+	 */
+	public MappedLogWrapper(@NotNull File file) throws IOException {
+		this(file, 64 * 1024 * 1024, 1, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Creates a MappedLogWrapper with a custom segment size and sync interval
+	 *
+	 * @param file         the base file name, which is suffixed with the segment index
+	 * @param segmentSize  the size of each segment in bytes
+	 * @param syncInterval the time between syncing the active segment to disk, or 0 to only sync on {@link #flush()} and when a segment is full
+	 * @param unit         the unit of syncInterval
+	 * @throws IOException if the first segment could not be created
+	 */
+	public MappedLogWrapper(@NotNull File file, int segmentSize, long syncInterval, @NotNull TimeUnit unit) throws IOException {
+		if (segmentSize < PAGE_SIZE)
+			throw new IllegalArgumentException("segmentSize must be at least " + PAGE_SIZE);
+		if (syncInterval < 0)
+			throw new IllegalArgumentException("syncInterval cannot be negative");
+		String fileName = file.getName();
+		int extensionIndex = fileName.lastIndexOf('.');
+		this.directory = file.toPath().toAbsolutePath().getParent();
+		this.stem = extensionIndex <= 0 ? fileName : fileName.substring(0, extensionIndex);
+		this.extension = extensionIndex <= 0 ? "" : fileName.substring(extensionIndex);
+		this.segmentSize = segmentSize;
+		this.encoder = new Utf8Encoder(1024);
+		this.nextIndex = findNextIndex();
+		this.current = Segment.create(getSegmentPath(nextIndex++), segmentSize);
+		this.next = prepareNext();
+		this.closed = false;
+		this.periodicSync = LogFlusher.register(this, unit.toNanos(syncInterval));
+	}
+	
+	/**
+	 * Returns the segment that is currently being written to
+	 *
+	 * @return the path of the active segment
+	 */
+	@NotNull
+	public Path getCurrentSegment() {
+		return current.getPath();
+	}
+	
+	@Override
+	public void onLog(@NotNull Log.LogLevel level, @NotNull String str) {
+		onLog(level, (CharSequence) str);
+	}
+	
+	@Override
+	public synchronized void onLog(@NotNull Log.LogLevel level, @NotNull CharSequence str) {
+		if (closed)
+			return;
+		encoder.clear();
+		encoder.append(str);
+		encoder.appendLineSeparator();
+		// Lines never straddle two segments, so each segment can be read on its own. Only a line longer than a whole segment is split
+		MappedByteBuffer first = current.getBuffer();
+		if (encoder.getLength() > first.remaining() && first.position() > 0 && !tryRoll())
+			encoder.truncateLine(first.remaining()); // Keep as much of the line as still fits, the next line tries to roll again
+		byte [] data = encoder.getBuffer();
+		int length = encoder.getLength();
+		int offset = 0;
+		while (true) {
+			MappedByteBuffer buffer = current.getBuffer();
+			int chunk = Math.min(length - offset, buffer.remaining());
+			buffer.put(data, offset, chunk);
+			offset += chunk;
+			if (offset >= length || !tryRoll())
+				break;
+		}
+	}
+	
+	/**
+	 * Syncs the active segment to disk. This does not take the wrapper's lock, so logging threads are never blocked by the sync
+	 */
+	@Override
+	public void flush() {
+		current.sync();
+	}
+	
+	/**
+	 * Syncs the active segment to disk, truncates it to its written length and deletes the pre-allocated next segment
+	 */
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		LogFlusher.unregister(this, periodicSync);
+		current.retire();
+		next.thenAccept(Segment::delete);
+	}
+	
+	private boolean tryRoll() {
+		try {
+			roll();
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	private void roll() throws IOException {
+		Segment full = current;
+		Segment segment;
+		try {
+			segment = next.join();
+		} catch (CompletionException e) {
+			segment = Segment.create(getSegmentPath(nextIndex++), segmentSize);
+		}
+		current = segment;
+		next = prepareNext();
+		LogFlusher.execute(full::retire);
+	}
+	
+	@NotNull
+	private CompletableFuture<Segment> prepareNext() {
+		Path path = getSegmentPath(nextIndex++);
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return Segment.create(path, segmentSize);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, LogFlusher::execute);
+	}
+	
+	@NotNull
+	private Path getSegmentPath(int index) {
+		return directory.resolve(String.format("%s-%06d%s", stem, index, extension));
+	}
+	
+	private int findNextIndex() throws IOException {
+		Pattern pattern = Pattern.compile(Pattern.quote(stem + '-') + "(\\d+)" + Pattern.quote(extension));
+		int nextIndex = 0;
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path path : (Iterable<Path>) files::iterator) {
+				Matcher matcher = pattern.matcher(path.getFileName().toString());
+				if (matcher.matches())
+					nextIndex = Math.max(nextIndex, Integer.parseInt(matcher.group(1)) + 1);
+			}
+		}
+		return nextIndex;
+	}
+	
+	private static class Segment {
+		
+		private final Path path;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+		private boolean retired;
+		
+		private Segment(@NotNull Path path, @NotNull FileChannel channel, @NotNull MappedByteBuffer buffer) {
+			this.path = path;
+			this.channel = channel;
+			this.buffer = buffer;
+			this.retired = false;
+		}
+		
+		@NotNull
+		public Path getPath() {
+			return path;
+		}
+		
+		@NotNull
+		public MappedByteBuffer getBuffer() {
+			return buffer;
+		}
+		
+		public synchronized void sync() {
+			if (!retired)
+				buffer.force();
+		}
+		
+		/**
+		 * Syncs the segment, truncates the file to the written length and closes it. The buffer must not be written to afterwards. Windows does not allow truncating a file
+		 * while it is mapped, so there the segment keeps its zero padding
+		 */
+		public synchronized void retire() {
+			if (retired)
+				return;
+			retired = true;
+			try {
+				buffer.force();
+				try {
+					channel.truncate(buffer.position());
+				} catch (IOException e) {
+					// The mapping is only released once the buffer is garbage collected
+				}
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		public synchronized void delete() {
+			retired = true;
+			try {
+				channel.close();
+				Files.deleteIfExists(path);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		@NotNull
+		public static Segment create(@NotNull Path path, int size) throws IOException {
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			try {
+				MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, size);
+				// Touch every page up front so that logging threads never take a page fault
+				for (int i = 0; i < size; i += PAGE_SIZE)
+					buffer.put(i, (byte) 0);
+				return new Segment(path, channel, buffer);
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
+		
+	}
+	
+}
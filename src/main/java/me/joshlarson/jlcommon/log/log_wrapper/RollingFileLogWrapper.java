@@ -0,0 +1,316 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A FileLogWrapper that starts a new file once the current one reaches a maximum size and/or at the start of every time interval. The previous file is renamed to
+ * {@code <name>-<yyyyMMdd-HHmmss>[-n]<extension>} while the wrapper's lock is held, so every line ends up in exactly one file. Archives are then compressed with gzip and the oldest
+ * archives beyond the retention count are deleted, both on a background thread.
+ */
+public class RollingFileLogWrapper extends StreamLogWrapper {
+	
+	private static final DateTimeFormatter ARCHIVE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneId.systemDefault());
+	private static final String COMPRESSED_SUFFIX = ".gz";
+	private static final long ROTATION_RETRY_DELAY = 1000;
+	private static final ExecutorService COMPRESSOR = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "log-compressor");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private final Path file;
+	private final String stem;
+	private final String extension;
+	private final Pattern archivePattern;
+	private final long maxFileSize;
+	private final ChronoUnit interval;
+	private final int maxArchives;
+	private long fileSize;
+	private long fileStart;
+	private long nextRotation;
+	private long nextRotationAttempt;
+	private String lastArchiveTimestamp;
+	private int lastArchiveIndex;
+	private volatile Path liveArchive;
+	
+	/**
+	 * Creates a RollingFileLogWrapper that rotates by size and flushes after every line
+	 *
+	 * @param file        the file to write to, which is appended to if it already exists
+	 * @param maxFileSize the size in bytes at which the file is rotated
+	 * @param maxArchives the number of rotated files to keep
+	 * @throws IOException if the file could not be opened
+	 */
+	public RollingFileLogWrapper(@NotNull File file, long maxFileSize, int maxArchives) throws IOException {
+		this(file, maxFileSize, null, maxArchives, FlushPolicy.IMMEDIATE);
+	}
+	
+	/**
+	 * Creates a RollingFileLogWrapper that rotates by size and/or time
+	 *
+	 * @param file        the file to write to, which is appended to if it already exists
+	 * @param maxFileSize the size in bytes at which the file is rotated, or 0 to not rotate by size
+	 * @param interval    rotates the file at the start of every interval in the system time zone (MINUTES, HOURS or DAYS), or null to not rotate by time
+	 * @param maxArchives the number of rotated files to keep
+	 * @param policy      when to write buffered lines to the file
+	 * @throws IOException if the file could not be opened
+	 */
+	public RollingFileLogWrapper(@NotNull File file, long maxFileSize, @Nullable ChronoUnit interval, int maxArchives, @NotNull FlushPolicy policy) throws IOException {
+		super(openChannel(file.toPath()), policy);
+		if (maxFileSize < 0)
+			throw new IllegalArgumentException("maxFileSize cannot be negative");
+		if (interval != null && interval != ChronoUnit.MINUTES && interval != ChronoUnit.HOURS && interval != ChronoUnit.DAYS)
+			throw new IllegalArgumentException("interval must be MINUTES, HOURS or DAYS");
+		if (maxArchives < 0)
+			throw new IllegalArgumentException("maxArchives cannot be negative");
+		String fileName = file.getName();
+		int extensionIndex = fileName.lastIndexOf('.');
+		this.file = file.toPath().toAbsolutePath();
+		this.stem = extensionIndex <= 0 ? fileName : fileName.substring(0, extensionIndex);
+		this.extension = extensionIndex <= 0 ? "" : fileName.substring(extensionIndex);
+		this.archivePattern = Pattern.compile(Pattern.quote(stem + '-') + "(\\d{8}-\\d{6})(?:-(\\d+))?" + Pattern.quote(extension) + "(?:" + Pattern.quote(COMPRESSED_SUFFIX) + ")?");
+		this.maxFileSize = maxFileSize;
+		this.interval = interval;
+		this.maxArchives = maxArchives;
+		this.fileSize = this.file.toFile().length();
+		this.fileStart = System.currentTimeMillis();
+		this.nextRotation = calculateNextRotation(fileStart);
+		this.nextRotationAttempt = 0;
+		this.lastArchiveTimestamp = "";
+		this.lastArchiveIndex = 0;
+		this.liveArchive = null;
+		COMPRESSOR.execute(this::compressAndPrune);
+	}
+	
+	/**
+	 * Rotates the file now, regardless of its size or age
+	 */
+	public synchronized void rotate() {
+		rotateFile(System.currentTimeMillis());
+	}
+	
+	@Override
+	protected void beforeWrite(@NotNull LogLevel level, int length) {
+		long now = System.currentTimeMillis();
+		if (((maxFileSize > 0 && fileSize > 0 && fileSize + length > maxFileSize) || now >= nextRotation) && now >= nextRotationAttempt)
+			rotateFile(now);
+		fileSize += length;
+	}
+	
+	/**
+	 * Moves the current file to a new archive and continues in a new file. If the file cannot be moved or the new file cannot be opened, lines keep being appended to the
+	 * current file and the rotation is retried a second later
+	 */
+	private void rotateFile(long now) {
+		// Write everything buffered so far into the current file, then move it out of the way and continue in a new one
+		flush();
+		Path archive = findArchivePath(fileStart);
+		Path previousArchive = liveArchive;
+		liveArchive = archive; // The current channel keeps appending to the archive until the new file is in use
+		try {
+			Files.move(file, archive, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace();
+			liveArchive = previousArchive;
+			nextRotationAttempt = now + ROTATION_RETRY_DELAY;
+			return;
+		}
+		FileChannel channel;
+		try {
+			channel = reopenFile();
+		} catch (IOException e) {
+			e.printStackTrace();
+			restoreArchive(archive);
+			nextRotationAttempt = now + ROTATION_RETRY_DELAY;
+			return;
+		}
+		fileSize = 0;
+		fileStart = now;
+		nextRotation = calculateNextRotation(now);
+		try {
+			setChannel(channel);
+		} catch (IOException e) {
+			e.printStackTrace(); // Only closing the previous channel failed, the new one is already in use
+		}
+		liveArchive = null;
+		COMPRESSOR.execute(this::compressAndPrune);
+	}
+	
+	/**
+	 * Moves the archive back to the file after the new file could not be opened, because the current channel still appends to it. If that fails too, the compressor keeps
+	 * leaving the archive alone until the next successful rotation
+	 */
+	private void restoreArchive(@NotNull Path archive) {
+		try {
+			Files.move(archive, file, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Opens the file again after the previous one was archived
+	 *
+	 * @return the new channel
+	 * @throws IOException if the file could not be opened
+	 */
+	@NotNull
+	FileChannel reopenFile() throws IOException {
+		return openChannel(file);
+	}
+	
+	private long calculateNextRotation(long time) {
+		if (interval == null)
+			return Long.MAX_VALUE;
+		ZonedDateTime start = Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()).truncatedTo(interval);
+		return start.plus(1, interval).toInstant().toEpochMilli();
+	}
+	
+	@NotNull
+	private Path findArchivePath(long start) {
+		String timestamp = ARCHIVE_TIME_FORMAT.format(Instant.ofEpochMilli(start));
+		// Archives within the same second must keep increasing, even if older ones were already pruned
+		int index = timestamp.equals(lastArchiveTimestamp) ? lastArchiveIndex + 1 : 0;
+		Path archive = getArchivePath(timestamp, index);
+		while (Files.exists(archive) || Files.exists(archive.resolveSibling(archive.getFileName() + COMPRESSED_SUFFIX)))
+			archive = getArchivePath(timestamp, ++index);
+		lastArchiveTimestamp = timestamp;
+		lastArchiveIndex = index;
+		return archive;
+	}
+	
+	@NotNull
+	private Path getArchivePath(@NotNull String timestamp, int index) {
+		if (index == 0)
+			return file.resolveSibling(stem + '-' + timestamp + extension);
+		return file.resolveSibling(stem + '-' + timestamp + '-' + index + extension);
+	}
+	
+	/**
+	 * Compresses every archive that has not been compressed yet, and then deletes the oldest archives beyond the retention count
+	 */
+	private void compressAndPrune() {
+		try {
+			List<Archive> archives = listArchives();
+			archives.removeIf(archive -> archive.getPath().equals(liveArchive)); // Still being written to
+			for (int i = 0; i < archives.size(); i++) {
+				Archive archive = archives.get(i);
+				if (i < archives.size() - maxArchives)
+					Files.deleteIfExists(archive.getPath());
+				else if (!archive.isCompressed())
+					compress(archive.getPath());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	@NotNull
+	private List<Archive> listArchives() throws IOException {
+		List<Archive> archives = new ArrayList<>();
+		try (Stream<Path> files = Files.list(file.getParent())) {
+			files.forEach(path -> {
+				Matcher matcher = archivePattern.matcher(path.getFileName().toString());
+				if (matcher.matches())
+					archives.add(new Archive(path, matcher.group(1), matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2))));
+			});
+		}
+		archives.sort(Comparator.comparing(Archive::getTimestamp).thenComparingInt(Archive::getIndex));
+		return archives;
+	}
+	
+	private static void compress(@NotNull Path archive) throws IOException {
+		Path compressed = archive.resolveSibling(archive.getFileName() + COMPRESSED_SUFFIX);
+		Path temporary = archive.resolveSibling(archive.getFileName() + COMPRESSED_SUFFIX + ".tmp");
+		try (InputStream is = Files.newInputStream(archive); OutputStream os = new GZIPOutputStream(Files.newOutputStream(temporary), 64 * 1024)) {
+			is.transferTo(os);
+		}
+		Files.move(temporary, compressed, StandardCopyOption.ATOMIC_MOVE);
+		Files.delete(archive);
+	}
+	
+	@NotNull
+	private static FileChannel openChannel(@NotNull Path file) throws IOException {
+		return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+	
+	private static class Archive {
+		
+		private final Path path;
+		private final String timestamp;
+		private final int index;
+		
+		public Archive(@NotNull Path path, @NotNull String timestamp, int index) {
+			this.path = path;
+			this.timestamp = timestamp;
+			this.index = index;
+		}
+		
+		@NotNull
+		public Path getPath() {
+			return path;
+		}
+		
+		@NotNull
+		public String getTimestamp() {
+			return timestamp;
+		}
+		
+		public int getIndex() {
+			return index;
+		}
+		
+		public boolean isCompressed() {
+			return path.getFileName().toString().endsWith(COMPRESSED_SUFFIX);
+		}
+		
+	}
+	
+}
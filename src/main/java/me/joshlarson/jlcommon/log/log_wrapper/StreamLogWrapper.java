@@ -26,30 +26,194 @@ package me.joshlarson.jlcommon.log.log_wrapper;
 import me.joshlarson.jlcommon.log.Log;
 import me.joshlarson.jlcommon.log.LogWrapper;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Writes each line as UTF-8 into a direct buffer, which is written to the underlying channel according to a {@link FlushPolicy}. Anything still buffered is flushed when the JVM
+ * shuts down.
+ */
 public class StreamLogWrapper implements LogWrapper {
 	
-	private final BufferedWriter writer;
+	private static final int MIN_BUFFER_SIZE = 64 * 1024;
 	
+	private WritableByteChannel channel;
+	private final OutputStream os;
+	private final FlushPolicy policy;
+	private final ByteBuffer buffer;
+	private final Utf8Encoder encoder;
+	private final ScheduledFuture<?> periodicFlush;
+	private volatile Log.LogLevel minimumLevel;
+	
+	/**
+	 * Creates a StreamLogWrapper that flushes after every line
+	 *
+	 * @param os the output stream to write to
+	 */
 	public StreamLogWrapper(@NotNull OutputStream os) {
-		writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+		this(os, FlushPolicy.IMMEDIATE);
+	}
+	
+	/**
+	 * Creates a StreamLogWrapper with a custom flush policy
+	 *
+	 * @param os     the output stream to write to
+	 * @param policy when to write buffered lines to the output stream
+	 */
+	public StreamLogWrapper(@NotNull OutputStream os, @NotNull FlushPolicy policy) {
+		this(Channels.newChannel(os), os, policy);
+	}
+	
+	/**
+	 * Creates a StreamLogWrapper that writes to a channel with a custom flush policy
+	 *
+	 * @param channel the channel to write to
+	 * @param policy  when to write buffered lines to the channel
+	 */
+	public StreamLogWrapper(@NotNull WritableByteChannel channel, @NotNull FlushPolicy policy) {
+		this(channel, null, policy);
+	}
+	
+	private StreamLogWrapper(@NotNull WritableByteChannel channel, @Nullable OutputStream os, @NotNull FlushPolicy policy) {
+		this.channel = channel;
+		this.os = os;
+		this.policy = policy;
+		this.buffer = ByteBuffer.allocateDirect(Math.max(MIN_BUFFER_SIZE, policy.getMaxBufferedBytes()));
+		this.encoder = new Utf8Encoder(1024);
+		this.periodicFlush = policy.isBuffering() ? LogFlusher.register(this, policy.getMaxDelay(TimeUnit.NANOSECONDS)) : null;
+		this.minimumLevel = Log.LogLevel.TRACE;
+	}
+	
+	@NotNull
+	@Override
+	public Log.LogLevel getMinimumLevel() {
+		return minimumLevel;
+	}
+	
+	/**
+	 * Changes the minimum LogLevel to write, taking effect for the next message. Defaults to TRACE
+	 *
+	 * @param level the minimum LogLevel to write
+	 */
+	public void setMinimumLevel(@NotNull Log.LogLevel level) {
+		this.minimumLevel = level;
+		Log.refreshLevels();
 	}
 	
 	@Override
 	public void onLog(@NotNull Log.LogLevel level, @NotNull String str) {
+		onLog(level, (CharSequence) str);
+	}
+	
+	@Override
+	public synchronized void onLog(@NotNull Log.LogLevel level, @NotNull CharSequence str) {
+		encoder.clear();
+		encoder.append(str);
+		encoder.appendLineSeparator();
+		write(level, encoder.getBuffer(), encoder.getLength());
+	}
+	
+	@Override
+	public synchronized void flush() {
 		try {
-			writer.write(str);
-			writer.newLine();
-			writer.flush();
+			if (buffer.position() > 0)
+				flushBuffer();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 	
+	/**
+	 * Flushes anything that is still buffered and closes the underlying channel
+	 */
+	public synchronized void close() {
+		LogFlusher.unregister(this, periodicFlush);
+		flush();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Writes already encoded bytes as a single entry, applying the flush policy afterwards. Subclasses that encode entries themselves should write them through this
+	 *
+	 * @param level  the log level of the entry
+	 * @param data   the encoded entry
+	 * @param length the number of bytes in data to write
+	 */
+	protected final synchronized void write(@NotNull Log.LogLevel level, @NotNull byte [] data, int length) {
+		try {
+			beforeWrite(level, length);
+			append(data, length);
+			if (policy.isFlushRequired(level, buffer.position()))
+				flushBuffer();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Called with the wrapper's lock held before each line is written, so subclasses can switch channels between lines
+	 *
+	 * @param level  the log level of the line
+	 * @param length the encoded length of the line in bytes, including the line separator
+	 * @throws IOException if switching channels fails
+	 */
+	protected void beforeWrite(@NotNull Log.LogLevel level, int length) throws IOException {
+		
+	}
+	
+	/**
+	 * Writes anything that is still buffered to the current channel, closes it, and continues writing to the new channel
+	 *
+	 * @param channel the channel to write to from now on
+	 * @throws IOException if the buffered lines could not be written or the old channel could not be closed
+	 */
+	protected final synchronized void setChannel(@NotNull WritableByteChannel channel) throws IOException {
+		try {
+			if (buffer.position() > 0)
+				flushBuffer();
+		} finally {
+			WritableByteChannel previous = this.channel;
+			this.channel = channel;
+			previous.close();
+		}
+	}
+	
+	private void append(@NotNull byte [] data, int length) throws IOException {
+		if (length > buffer.remaining()) {
+			flushBuffer();
+			if (length > buffer.capacity()) {
+				writeFully(ByteBuffer.wrap(data, 0, length));
+				return;
+			}
+		}
+		buffer.put(data, 0, length);
+	}
+	
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		try {
+			writeFully(buffer);
+		} finally {
+			buffer.clear();
+		}
+		if (os != null)
+			os.flush();
+	}
+	
+	private void writeFully(@NotNull ByteBuffer data) throws IOException {
+		while (data.hasRemaining())
+			channel.write(data);
+	}
+	
 }
@@ -0,0 +1,125 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes character sequences as UTF-8 into a reusable byte array, without creating intermediate Strings. Not thread safe.
+ */
+final class Utf8Encoder {
+	
+	private static final byte [] LINE_SEPARATOR = System.lineSeparator().getBytes();
+	
+	private byte [] buffer;
+	private int length;
+	
+	public Utf8Encoder(int initialCapacity) {
+		this.buffer = new byte[initialCapacity];
+		this.length = 0;
+	}
+	
+	public void clear() {
+		length = 0;
+	}
+	
+	@NotNull
+	public byte [] getBuffer() {
+		return buffer;
+	}
+	
+	public int getLength() {
+		return length;
+	}
+	
+	/**
+	 * Shortens an encoded line to at most maxLength bytes, cutting the text at a character boundary and keeping the line separator at the end
+	 *
+	 * @param maxLength the maximum length in bytes, including the line separator
+	 */
+	public void truncateLine(int maxLength) {
+		if (length <= maxLength)
+			return;
+		int cut = maxLength - LINE_SEPARATOR.length;
+		if (cut < 0) {
+			length = 0;
+			return;
+		}
+		while (cut > 0 && (buffer[cut] & 0xC0) == 0x80)
+			cut--;
+		System.arraycopy(LINE_SEPARATOR, 0, buffer, cut, LINE_SEPARATOR.length);
+		length = cut + LINE_SEPARATOR.length;
+	}
+	
+	public void writeTo(@NotNull OutputStream os) throws IOException {
+		os.write(buffer, 0, length);
+	}
+	
+	public void appendLineSeparator() {
+		ensureCapacity(LINE_SEPARATOR.length);
+		System.arraycopy(LINE_SEPARATOR, 0, buffer, length, LINE_SEPARATOR.length);
+		length += LINE_SEPARATOR.length;
+	}
+	
+	public void append(@NotNull CharSequence str) {
+		int strLength = str.length();
+		ensureCapacity(strLength * 3);
+		byte [] buffer = this.buffer;
+		int position = length;
+		for (int i = 0; i < strLength; i++) {
+			char c = str.charAt(i);
+			if (c < 0x80) {
+				buffer[position++] = (byte) c;
+			} else if (c < 0x800) {
+				buffer[position++] = (byte) (0xC0 | (c >> 6));
+				buffer[position++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < strLength && Character.isLowSurrogate(str.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, str.charAt(++i));
+				buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+				buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				buffer[position++] = '?';
+			} else {
+				buffer[position++] = (byte) (0xE0 | (c >> 12));
+				buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buffer[position++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		length = position;
+	}
+	
+	private void ensureCapacity(int additional) {
+		if (length + additional <= buffer.length)
+			return;
+		byte [] expanded = new byte[Math.max(buffer.length * 2, length + additional)];
+		System.arraycopy(buffer, 0, expanded, 0, length);
+		buffer = expanded;
+	}
+	
+}
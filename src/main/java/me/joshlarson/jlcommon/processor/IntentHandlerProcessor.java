@@ -0,0 +1,212 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.processor;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates an IntentRegistry for every Service that declares an IntentHandler or Multiplexer method, so handlers are registered and called without reflection. A class is left to the
+ * reflection fallback if any of its handlers are private, if any handler parameter type cannot be referenced from the class's package, or if the class itself is private
+ */
+@SupportedAnnotationTypes({IntentHandlerProcessor.INTENT_HANDLER, IntentHandlerProcessor.MULTIPLEXER})
+public class IntentHandlerProcessor extends AbstractProcessor {
+	
+	static final String INTENT_HANDLER = "me.joshlarson.jlcommon.control.IntentHandler";
+	static final String MULTIPLEXER = "me.joshlarson.jlcommon.control.IntentMultiplexer.Multiplexer";
+	private static final String SERVICE = "me.joshlarson.jlcommon.control.Service";
+	private static final String INTENT = "me.joshlarson.jlcommon.control.Intent";
+	private static final String REGISTRY = "me.joshlarson.jlcommon.control.IntentRegistry";
+	private static final String REGISTRY_SUFFIX = "_IntentRegistry";
+	
+	private final Set<String> generated = new HashSet<>();
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Map<TypeElement, List<ExecutableElement>> handlers = new LinkedHashMap<>();
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() == ElementKind.METHOD && element.getEnclosingElement() instanceof TypeElement)
+					handlers.computeIfAbsent((TypeElement) element.getEnclosingElement(), t -> new ArrayList<>()).add((ExecutableElement) element);
+			}
+		}
+		for (Map.Entry<TypeElement, List<ExecutableElement>> e : handlers.entrySet()) {
+			try {
+				generate(e.getKey(), e.getValue());
+			} catch (IOException ex) {
+				processingEnv.getMessager().printMessage(Kind.ERROR, "Failed to write intent registry: " + ex.getMessage(), e.getKey());
+			}
+		}
+		return false;
+	}
+	
+	private void generate(TypeElement service, List<ExecutableElement> methods) throws IOException {
+		Elements elements = processingEnv.getElementUtils();
+		Types types = processingEnv.getTypeUtils();
+		TypeElement serviceElement = elements.getTypeElement(SERVICE);
+		TypeElement intentElement = elements.getTypeElement(INTENT);
+		if (serviceElement == null || intentElement == null)
+			return;
+		if (!types.isSubtype(types.erasure(service.asType()), types.erasure(serviceElement.asType())))
+			return;
+		if (!isReferenceable(service)) {
+			note(service, service.getQualifiedName() + " is private, its intent handlers will be registered with reflection");
+			return;
+		}
+		PackageElement servicePackage = elements.getPackageOf(service);
+		String packageName = servicePackage.getQualifiedName().toString();
+		String binaryName = elements.getBinaryName(service).toString();
+		String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + REGISTRY_SUFFIX;
+		String qualifiedName = packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+		if (!generated.add(qualifiedName))
+			return;
+		
+		String serviceType = types.erasure(service.asType()).toString();
+		List<String> registrations = new ArrayList<>();
+		for (ExecutableElement method : methods) {
+			if (method.getModifiers().contains(Modifier.PRIVATE)) {
+				note(method, service.getSimpleName() + "::" + method.getSimpleName() + " is private, so " + service.getQualifiedName() + " will be registered with reflection. Make it package-private to use the generated registry");
+				return;
+			}
+			for (VariableElement parameter : method.getParameters()) {
+				if (!isAccessible(types.erasure(parameter.asType()), servicePackage)) {
+					note(method, service.getSimpleName() + "::" + method.getSimpleName() + " takes " + types.erasure(parameter.asType()) + ", which is not accessible from " + packageName + ", so " + service.getQualifiedName() + " will be registered with reflection");
+					return;
+				}
+			}
+			String call = (method.getModifiers().contains(Modifier.STATIC) ? serviceType : "service") + '.' + method.getSimpleName();
+			List<? extends VariableElement> parameters = method.getParameters();
+			if (hasAnnotation(method, INTENT_HANDLER) && parameters.size() == 1) {
+				TypeMirror intent = types.erasure(parameters.get(0).asType());
+				if (types.isSubtype(intent, types.erasure(intentElement.asType())))
+					registrations.add(String.format("registrar.intentHandler(\"%s\", %s.class, (service, intent) -> %s((%s) intent));", method.getSimpleName(), intent, call, intent));
+			}
+			if (hasAnnotation(method, MULTIPLEXER))
+				registrations.add(generateMultiplexer(method, serviceType, call));
+		}
+		
+		try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, service).openWriter()) {
+			if (!packageName.isEmpty())
+				writer.write("package " + packageName + ";\n\n");
+			writer.write("/**\n * Generated by " + IntentHandlerProcessor.class.getName() + " for " + service.getQualifiedName() + ". Do not edit\n */\n");
+			writer.write("@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n");
+			writer.write("public final class " + simpleName + " implements " + REGISTRY + "<" + serviceType + "> {\n\t\n");
+			writer.write("\t@Override\n");
+			writer.write("\tpublic void register(" + REGISTRY + ".Registrar<" + serviceType + "> registrar) {\n");
+			for (String registration : registrations)
+				writer.write("\t\t" + registration + "\n");
+			writer.write("\t}\n\t\n}\n");
+		}
+	}
+	
+	/**
+	 * Generates a multiplexer registration. One and two parameter methods also get a fixed-arity invoker, so calling them does not allocate an argument array
+	 */
+	private String generateMultiplexer(ExecutableElement method, String serviceType, String call) {
+		Types types = processingEnv.getTypeUtils();
+		List<? extends VariableElement> parameters = method.getParameters();
+		StringJoiner classes = new StringJoiner(", ");
+		StringJoiner arrayArgs = new StringJoiner(", ");
+		StringJoiner fixedParams = new StringJoiner(", ");
+		StringJoiner fixedArgs = new StringJoiner(", ");
+		for (int i = 0; i < parameters.size(); i++) {
+			TypeMirror parameter = types.erasure(parameters.get(i).asType());
+			classes.add(parameter + ".class");
+			arrayArgs.add("(" + parameter + ") args[" + i + "]");
+			fixedParams.add("Object arg" + i);
+			fixedArgs.add("(" + parameter + ") arg" + i);
+		}
+		String invoker = REGISTRY + ".MultiplexerInvoker<" + serviceType + ">";
+		StringBuilder str = new StringBuilder();
+		str.append("registrar.multiplexer(\"").append(method.getSimpleName()).append("\", new Class<?>[] {").append(classes).append("}, new ").append(invoker).append("() {\n");
+		str.append("\t\t\t@Override\n");
+		str.append("\t\t\tpublic void invoke(").append(serviceType).append(" service, Object [] args) {\n");
+		str.append("\t\t\t\t").append(call).append('(').append(arrayArgs).append(");\n");
+		str.append("\t\t\t}\n");
+		if (parameters.size() == 1 || parameters.size() == 2) {
+			str.append("\t\t\t\n");
+			str.append("\t\t\t@Override\n");
+			str.append("\t\t\tpublic void invoke(").append(serviceType).append(" service, ").append(fixedParams).append(") {\n");
+			str.append("\t\t\t\t").append(call).append('(').append(fixedArgs).append(");\n");
+			str.append("\t\t\t}\n");
+		}
+		str.append("\t\t});");
+		return str.toString();
+	}
+	
+	private void note(Element element, String message) {
+		processingEnv.getMessager().printMessage(Kind.NOTE, message, element);
+	}
+	
+	private static boolean isReferenceable(TypeElement type) {
+		for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			if (e.getModifiers().contains(Modifier.PRIVATE))
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Determines whether or not the generated registry, which lives in the service's package, can name the type in a cast or class literal
+	 */
+	private boolean isAccessible(TypeMirror type, PackageElement from) {
+		if (type instanceof ArrayType)
+			return isAccessible(((ArrayType) type).getComponentType(), from);
+		if (!(type instanceof DeclaredType))
+			return true;
+		Elements elements = processingEnv.getElementUtils();
+		for (Element e = ((DeclaredType) type).asElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+			Set<Modifier> modifiers = e.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE))
+				return false;
+			if (!modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(e).equals(from))
+				return false;
+		}
+		return true;
+	}
+	
+	private static boolean hasAnnotation(Element element, String annotation) {
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation))
+				return true;
+		}
+		return false;
+	}
+	
+}
@@ -26,20 +26,77 @@ package me.joshlarson.jlcommon.utilities;
 import me.joshlarson.jlcommon.log.Log;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class ThreadUtilities {
 	
+	private static final Path THREAD_SELF = Paths.get("/proc/thread-self");
+	private static volatile boolean affinitySupported = true;
+	
 	public static ThreadFactory newThreadFactory(@NotNull String pattern) {
-		return new CustomThreadFactory(pattern, Thread.NORM_PRIORITY);
+		return new CustomThreadFactory(pattern, Thread.NORM_PRIORITY, new int[0]);
 	}
 	
 	public static ThreadFactory newThreadFactory(@NotNull String pattern, int priority) {
-		return new CustomThreadFactory(pattern, priority);
+		return new CustomThreadFactory(pattern, priority, new int[0]);
+	}
+	
+	/**
+	 * Creates a thread factory where each thread pins itself to the specified CPUs before running. If the affinity cannot be set on this platform, the threads run unpinned
+	 *
+	 * @param pattern  the thread name pattern
+	 * @param priority the thread priority
+	 * @param cpus     the CPUs each thread may run on, or an empty array for no affinity
+	 * @return the new thread factory
+	 */
+	public static ThreadFactory newThreadFactory(@NotNull String pattern, int priority, @NotNull int [] cpus) {
+		return new CustomThreadFactory(pattern, priority, cpus.clone());
+	}
+	
+	/**
+	 * Attempts to restrict the calling thread to the specified CPUs. This is only supported on Linux with the taskset utility installed, and is a no-op everywhere else. Memory placement is
+	 * left to the JVM, so NUMA-local allocation should be enabled separately with -XX:+UseNUMA
+	 *
+	 * @param cpus the CPUs the calling thread may run on
+	 * @return TRUE if the affinity was applied, FALSE otherwise
+	 */
+	public static boolean setThreadAffinity(@NotNull int ... cpus) {
+		if (cpus.length == 0 || !affinitySupported)
+			return false;
+		String threadId;
+		try {
+			threadId = Files.readSymbolicLink(THREAD_SELF).getFileName().toString();
+		} catch (IOException | UnsupportedOperationException e) {
+			affinitySupported = false;
+			return false;
+		}
+		String cpuList = Arrays.stream(cpus).mapToObj(Integer::toString).collect(Collectors.joining(","));
+		try {
+			Process process = new ProcessBuilder("taskset", "-p", "-c", cpuList, threadId)
+					.redirectErrorStream(true)
+					.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+					.start();
+			if (!process.waitFor(1, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+				return false;
+			}
+			return process.exitValue() == 0;
+		} catch (IOException e) {
+			affinitySupported = false;
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
 	}
 	
 	public static void safeRun(@NotNull Runnable runnable) {
@@ -78,11 +135,13 @@ public class ThreadUtilities {
 		
 		private final String pattern;
 		private final int priority;
+		private final int [] cpus;
 		private int counter;
 		
-		public CustomThreadFactory(@NotNull String pattern, int priority) {
+		public CustomThreadFactory(@NotNull String pattern, int priority, @NotNull int [] cpus) {
 			this.pattern = pattern;
 			this.priority = priority;
+			this.cpus = cpus;
 			this.counter = 0;
 		}
 		
@@ -94,7 +153,16 @@ public class ThreadUtilities {
 				name = String.format(pattern, counter++);
 			else
 				name = pattern;
-			Thread t = new Thread(r, name);
+			Thread t;
+			if (cpus.length == 0) {
+				t = new Thread(r, name);
+			} else {
+				t = new Thread(() -> {
+					if (!setThreadAffinity(cpus))
+						Log.t("Unable to set CPU affinity for thread '%s'", Thread.currentThread().getName());
+					r.run();
+				}, name);
+			}
 			t.setPriority(priority);
 			return t;
 		}
@@ -1,5 +1,6 @@
 module me.joshlarson.jlcommon {
 	requires org.jetbrains.annotations;
+	requires static java.compiler;
 	
 	exports me.joshlarson.jlcommon.annotations;
 	exports me.joshlarson.jlcommon.callback;
@@ -12,4 +13,6 @@ module me.joshlarson.jlcommon {
 	exports me.joshlarson.jlcommon.log.log_wrapper;
 	exports me.joshlarson.jlcommon.security;
 	exports me.joshlarson.jlcommon.utilities;
+	
+	provides javax.annotation.processing.Processor with me.joshlarson.jlcommon.processor.IntentHandlerProcessor;
 }
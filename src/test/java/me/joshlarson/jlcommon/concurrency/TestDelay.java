@@ -0,0 +1,69 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class TestDelay {
+	
+	@Test
+	public void testSleepUntil() {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(5);
+		Assert.assertTrue(Delay.sleepUntilNano(deadline));
+		Assert.assertTrue(System.nanoTime() - deadline >= 0);
+		Assert.assertTrue(Delay.sleepUntilNano(deadline - 1000));
+	}
+	
+	@Test
+	public void testSleepPrecise() {
+		long before = Delay.getOvershoot().getCount();
+		for (int i = 0; i < 10; i++) {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1);
+			Assert.assertTrue(Delay.sleepUntilPreciseNano(deadline));
+			Assert.assertTrue(System.nanoTime() - deadline >= 0);
+		}
+		Assert.assertTrue(Delay.getOvershoot().getCount() >= before + 10);
+		long threshold = Delay.getSpinThreshold(TimeUnit.NANOSECONDS);
+		Assert.assertTrue(threshold >= TimeUnit.MICROSECONDS.toNanos(10));
+		Assert.assertTrue(threshold <= TimeUnit.MILLISECONDS.toNanos(2));
+	}
+	
+	@Test
+	public void testSleepInterrupted() {
+		Thread.currentThread().interrupt();
+		try {
+			Assert.assertFalse(Delay.sleepUntilNano(System.nanoTime() + TimeUnit.SECONDS.toNanos(1)));
+			Assert.assertFalse(Delay.sleepPrecise(1, TimeUnit.SECONDS));
+		} finally {
+			Delay.clearInterrupted();
+		}
+	}
+	
+}
@@ -0,0 +1,217 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+@RunWith(JUnit4.class)
+public class TestScheduledThreadPool {
+	
+	@Test
+	public void testExecute() {
+		ScheduledThreadPool pool = new ScheduledThreadPool(1, "scheduled");
+		testExecute(pool);
+	}
+	
+	@Test
+	public void testWheelExecute() {
+		ScheduledThreadPool pool = new ScheduledThreadPool(1, "scheduled");
+		pool.setTimerWheel(1, TimeUnit.MILLISECONDS, 64);
+		testExecute(pool);
+	}
+	
+	@Test
+	public void testWheelFixedRate() {
+		AtomicInteger count = new AtomicInteger(0);
+		ScheduledThreadPool pool = new ScheduledThreadPool(1, "scheduled");
+		pool.setTimerWheel(1, TimeUnit.MILLISECONDS, 8);
+		pool.start();
+		pool.executeWithFixedRate(0, 5, count::incrementAndGet);
+		waitFor(() -> count.get() >= 5);
+		pool.stop();
+		Assert.assertTrue(pool.awaitTermination(1000));
+		Assert.assertTrue(count.get() >= 5);
+	}
+	
+	@Test
+	public void testWheelFixedDelay() {
+		AtomicInteger count = new AtomicInteger(0);
+		ScheduledThreadPool pool = new ScheduledThreadPool(1, "scheduled");
+		pool.setTimerWheel(1, TimeUnit.MILLISECONDS, 8);
+		pool.start();
+		pool.executeWithFixedDelay(0, 5, count::incrementAndGet);
+		waitFor(() -> count.get() >= 5);
+		pool.stop();
+		Assert.assertTrue(pool.awaitTermination(1000));
+		Assert.assertTrue(count.get() >= 5);
+	}
+	
+	@Test
+	public void testWheelCancel() {
+		AtomicBoolean executed = new AtomicBoolean(false);
+		ScheduledThreadPool pool = new ScheduledThreadPool(1, "scheduled");
+		pool.setTimerWheel(1, TimeUnit.MILLISECONDS, 64);
+		pool.start();
+		ScheduledFuture<?> future = pool.execute(20, () -> executed.set(true));
+		Assert.assertNotNull(future);
+		Assert.assertTrue(future.cancel(false));
+		Delay.sleepMilli(50);
+		pool.stop();
+		Assert.assertTrue(pool.awaitTermination(1000));
+		Assert.assertFalse(executed.get());
+	}
+	
+	@Test
+	public void testFixedRateMicroseconds() {
+		AtomicInteger count = new AtomicInteger(0);
+		ScheduledThreadPool pool = new ScheduledThreadPool(1, "scheduled");
+		pool.start();
+		ScheduledTask task = pool.executeWithFixedRate(0, 250, TimeUnit.MICROSECONDS, count::incrementAndGet);
+		Assert.assertNotNull(task);
+		waitFor(() -> count.get() >= 20);
+		pool.stop();
+		Assert.assertTrue(pool.awaitTermination(1000));
+		Assert.assertTrue(task.getJitter().getCount() >= 20);
+	}
+	
+	@Test
+	public void testPreciseRate() {
+		AtomicInteger count = new AtomicInteger(0);
+		BasicScheduledThread thread = new BasicScheduledThread("precise", count::incrementAndGet);
+		thread.startWithPreciseRate(0, 500, TimeUnit.MICROSECONDS);
+		waitFor(() -> count.get() >= 20);
+		thread.stop();
+		Assert.assertTrue(thread.awaitTermination(1000));
+		TimeHistogram jitter = thread.getJitter();
+		Assert.assertNotNull(jitter);
+		Assert.assertEquals(count.get(), jitter.getCount());
+	}
+	
+	@Test
+	public void testPreciseRateCancel() {
+		AtomicInteger count = new AtomicInteger(0);
+		ScheduledThreadPool pool = new ScheduledThreadPool(1, "scheduled");
+		pool.start();
+		ScheduledTask task = pool.executeWithPreciseRate(0, 1, TimeUnit.MILLISECONDS, count::incrementAndGet);
+		Assert.assertNotNull(task);
+		waitFor(() -> count.get() >= 5);
+		task.cancel(false);
+		Delay.sleepMilli(10);
+		int executed = count.get();
+		Delay.sleepMilli(10);
+		Assert.assertEquals(executed, count.get());
+		pool.stop();
+		Assert.assertTrue(pool.awaitTermination(1000));
+	}
+	
+	@Test
+	public void testPreciseRateStartsImmediately() throws InterruptedException {
+		for (int i = 0; i < 50; i++) {
+			CountDownLatch executed = new CountDownLatch(3);
+			ScheduledThreadPool pool = new ScheduledThreadPool(2, "scheduled");
+			pool.start();
+			ScheduledTask task = pool.executeWithPreciseRate(0, 100, TimeUnit.MICROSECONDS, executed::countDown);
+			Assert.assertNotNull(task);
+			Assert.assertTrue(executed.await(1, TimeUnit.SECONDS));
+			Assert.assertFalse(task.isCancelled());
+			task.cancel(false);
+			pool.stop();
+			Assert.assertTrue(pool.awaitTermination(1000));
+		}
+	}
+	
+	@Test
+	public void testTickSkip() {
+		TickScheduler.TickTask task = runOverrunningTick(TickScheduler.OverrunPolicy.SKIP);
+		Assert.assertTrue(task.getOverrunCount() >= 1);
+		Assert.assertTrue(task.getMissedTicks() >= 3);
+	}
+	
+	@Test
+	public void testTickCatchUp() {
+		TickScheduler.TickTask task = runOverrunningTick(TickScheduler.OverrunPolicy.CATCH_UP);
+		Assert.assertTrue(task.getOverrunCount() >= 1);
+		Assert.assertTrue(task.getMissedTicks() >= 1);
+	}
+	
+	@Test
+	public void testTickStretch() {
+		TickScheduler.TickTask task = runOverrunningTick(TickScheduler.OverrunPolicy.STRETCH);
+		Assert.assertTrue(task.getOverrunCount() >= 1);
+		Assert.assertEquals(0, task.getMissedTicks());
+	}
+	
+	private static TickScheduler.TickTask runOverrunningTick(TickScheduler.OverrunPolicy policy) {
+		AtomicInteger count = new AtomicInteger(0);
+		AtomicInteger overruns = new AtomicInteger(0);
+		ScheduledThreadPool pool = new ScheduledThreadPool(1, "scheduled");
+		pool.start();
+		TickScheduler scheduler = new TickScheduler(pool);
+		scheduler.setOverrunListener((task, duration, missed) -> overruns.incrementAndGet());
+		TickScheduler.TickTask task = scheduler.schedule("tick", 2, TimeUnit.MILLISECONDS, policy, () -> {
+			if (count.incrementAndGet() == 1)
+				Delay.sleepMilli(20);
+		});
+		Assert.assertNotNull(task);
+		task.setMaxCatchUpTicks(2);
+		waitFor(() -> count.get() >= 10);
+		task.cancel();
+		pool.stop();
+		Assert.assertTrue(pool.awaitTermination(1000));
+		Assert.assertTrue(overruns.get() >= 1);
+		Assert.assertEquals(task.getTickCount(), task.getDurations().getCount());
+		return task;
+	}
+	
+	private static void testExecute(ScheduledThreadPool pool) {
+		AtomicBoolean executed = new AtomicBoolean(false);
+		pool.start();
+		long start = System.nanoTime();
+		pool.execute(10, () -> executed.set(true));
+		waitFor(executed::get);
+		long elapsed = System.nanoTime() - start;
+		pool.stop();
+		Assert.assertTrue(pool.awaitTermination(1000));
+		Assert.assertTrue(executed.get());
+		Assert.assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(10));
+	}
+	
+	private static void waitFor(BooleanSupplier condition) {
+		long start = System.nanoTime();
+		while (!condition.getAsBoolean() && System.nanoTime() - start < 1E9) {
+			Delay.sleepMilli(1);
+		}
+	}
+	
+}
@@ -0,0 +1,278 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import me.joshlarson.jlcommon.concurrency.SmartLock.AcquisitionMode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class TestSmartLock {
+	
+	@Test
+	public void testFairMutualExclusion() {
+		testMutualExclusion(new SmartLock());
+	}
+	
+	@Test
+	public void testNonFairMutualExclusion() {
+		testMutualExclusion(new SmartLock(false));
+	}
+	
+	@Test
+	public void testSpinThenParkMutualExclusion() {
+		testMutualExclusion(new SmartLock(AcquisitionMode.SPIN_THEN_PARK));
+	}
+	
+	@Test
+	public void testStatistics() {
+		SmartLock lock = new SmartLock(AcquisitionMode.NON_FAIR, true);
+		testMutualExclusion(lock);
+		LockStatistics statistics = lock.getStatistics();
+		Assert.assertNotNull(statistics);
+		Assert.assertEquals(40000, statistics.getAcquisitions());
+		Assert.assertTrue(statistics.getContendedAcquisitions() <= statistics.getAcquisitions());
+		Assert.assertEquals(statistics.getContendedAcquisitions(), statistics.getWaitTimes().getCount());
+	}
+	
+	@Test
+	public void testReentrantStatistics() {
+		SmartLock lock = new SmartLock(AcquisitionMode.FAIR, true);
+		lock.lock();
+		lock.lock();
+		Delay.sleepMilli(2);
+		lock.unlock();
+		lock.unlock();
+		LockStatistics statistics = lock.getStatistics();
+		Assert.assertNotNull(statistics);
+		Assert.assertEquals(1, statistics.getAcquisitions());
+		Assert.assertEquals(0, statistics.getContendedAcquisitions());
+		Assert.assertTrue(statistics.getLongestHold(TimeUnit.MILLISECONDS) >= 2);
+	}
+	
+	@Test
+	public void testNoStatistics() {
+		Assert.assertNull(new SmartLock().getStatistics());
+	}
+	
+	@Test
+	public void testAwaitUntilPredicate() throws InterruptedException {
+		SmartLock lock = new SmartLock();
+		AtomicBoolean ready = new AtomicBoolean(false);
+		Thread producer = new Thread(() -> {
+			Delay.sleepMilli(5);
+			lock.updateAndSignalAll(() -> ready.set(true));
+		});
+		producer.start();
+		Assert.assertTrue(lock.awaitUntil(ready::get, 5, TimeUnit.SECONDS));
+		producer.join();
+	}
+	
+	@Test
+	public void testAwaitUntilTimeout() throws InterruptedException {
+		SmartLock lock = new SmartLock();
+		long start = System.nanoTime();
+		Assert.assertFalse(lock.awaitUntil(() -> false, 10, TimeUnit.MILLISECONDS));
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+	}
+	
+	@Test
+	public void testNamedConditions() throws InterruptedException {
+		SmartLock lock = new SmartLock();
+		AtomicInteger items = new AtomicInteger(0);
+		AtomicInteger consumed = new AtomicInteger(0);
+		Thread consumer = new Thread(() -> {
+			try {
+				for (int i = 0; i < 100; i++) {
+					lock.awaitUntil("notEmpty", () -> items.get() > 0);
+					lock.updateAndSignalAll("notFull", items::decrementAndGet);
+					consumed.incrementAndGet();
+				}
+			} catch (InterruptedException e) {
+				Assert.fail("Interrupted");
+			}
+		});
+		consumer.start();
+		for (int i = 0; i < 100; i++) {
+			Assert.assertTrue(lock.awaitUntil("notFull", () -> items.get() < 4, 5, TimeUnit.SECONDS));
+			lock.updateAndSignalAll("notEmpty", items::incrementAndGet);
+		}
+		consumer.join(5000);
+		Assert.assertEquals(100, consumed.get());
+		Assert.assertEquals(0, items.get());
+	}
+	
+	@Test
+	public void testLockGuard() throws InterruptedException {
+		SmartLock lock = new SmartLock();
+		AtomicBoolean acquired = new AtomicBoolean(true);
+		try (LockGuard guard = lock.locked()) {
+			Assert.assertSame(guard, lock.locked());
+			lock.unlock();
+			Thread other = new Thread(() -> acquired.set(lock.tryLock()));
+			other.start();
+			other.join();
+		}
+		Assert.assertFalse(acquired.get());
+		Assert.assertTrue(lock.tryLock());
+		lock.unlock();
+	}
+	
+	@Test
+	public void testReadWriteLock() throws InterruptedException {
+		SmartReadWriteLock lock = new SmartReadWriteLock(false, true);
+		int [] values = new int[2];
+		AtomicBoolean torn = new AtomicBoolean(false);
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < 10000; i++) {
+				try (LockGuard guard = lock.writeLocked()) {
+					Assert.assertNotNull(guard);
+					values[0]++;
+					values[1]++;
+				}
+			}
+		});
+		Thread reader = new Thread(() -> {
+			for (int i = 0; i < 10000; i++) {
+				try (LockGuard guard = lock.readLocked()) {
+					Assert.assertNotNull(guard);
+					if (values[0] != values[1])
+						torn.set(true);
+				}
+			}
+		});
+		writer.start();
+		reader.start();
+		writer.join();
+		reader.join();
+		Assert.assertFalse(torn.get());
+		Assert.assertEquals(10000, values[0]);
+		LockStatistics writeStatistics = lock.getWriteStatistics();
+		LockStatistics readStatistics = lock.getReadStatistics();
+		Assert.assertNotNull(writeStatistics);
+		Assert.assertNotNull(readStatistics);
+		Assert.assertEquals(10000, writeStatistics.getAcquisitions());
+		Assert.assertEquals(10000, readStatistics.getAcquisitions());
+	}
+	
+	@Test
+	public void testReadersShareLock() throws InterruptedException {
+		SmartReadWriteLock lock = new SmartReadWriteLock();
+		lock.lockRead();
+		try {
+			AtomicBoolean acquired = new AtomicBoolean(false);
+			Thread other = new Thread(() -> {
+				if (lock.tryLockRead()) {
+					acquired.set(!lock.tryLockWrite());
+					lock.unlockRead();
+				}
+			});
+			other.start();
+			other.join();
+			Assert.assertTrue(acquired.get());
+		} finally {
+			lock.unlockRead();
+		}
+		Assert.assertTrue(lock.tryLockWrite());
+		lock.unlockWrite();
+	}
+	
+	@Test
+	public void testStampedLock() throws InterruptedException {
+		SmartStampedLock lock = new SmartStampedLock(true);
+		int [] values = new int[2];
+		AtomicBoolean torn = new AtomicBoolean(false);
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < 10000; i++) {
+				try (LockGuard guard = lock.writeLocked()) {
+					Assert.assertNotNull(guard);
+					values[0]++;
+					values[1]++;
+				}
+			}
+		});
+		Thread reader = new Thread(() -> {
+			for (int i = 0; i < 10000; i++) {
+				if (lock.optimisticRead(() -> values[0] - values[1]) != 0)
+					torn.set(true);
+			}
+		});
+		writer.start();
+		reader.start();
+		writer.join();
+		reader.join();
+		Assert.assertFalse(torn.get());
+		Assert.assertEquals(10000, lock.getOptimisticReads());
+		Assert.assertTrue(lock.getOptimisticFailures() <= lock.getOptimisticReads());
+		LockStatistics writeStatistics = lock.getWriteStatistics();
+		Assert.assertNotNull(writeStatistics);
+		Assert.assertEquals(10000, writeStatistics.getAcquisitions());
+		
+		long stamp = lock.tryOptimisticRead();
+		Assert.assertTrue(lock.validate(stamp));
+		lock.writeLocked().close();
+		Assert.assertFalse(lock.validate(stamp));
+	}
+	
+	@Test(expected = IllegalMonitorStateException.class)
+	public void testStampedUnlockWithoutLock() {
+		new SmartStampedLock().unlockWrite();
+	}
+	
+	private static void testMutualExclusion(SmartLock lock) {
+		int [] counter = new int[1];
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			threads.add(new Thread(() -> {
+				for (int j = 0; j < 10000; j++) {
+					lock.lock();
+					try {
+						counter[0]++;
+					} finally {
+						lock.unlock();
+					}
+				}
+			}));
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Assert.fail("Interrupted");
+			}
+		}
+		Assert.assertEquals(40000, counter[0]);
+	}
+	
+}
@@ -0,0 +1,141 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.concurrency;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class TestTaskThreadPool {
+	
+	@Test
+	public void testSingleTasks() {
+		AtomicInteger sum = new AtomicInteger(0);
+		TaskThreadPool<Integer> pool = new TaskThreadPool<>(4, "task-%d", sum::addAndGet);
+		pool.start();
+		for (int i = 1; i <= 1000; i++)
+			pool.addTask(i);
+		pool.stop(false);
+		Assert.assertTrue(pool.awaitTermination(1000));
+		Assert.assertEquals(500500, sum.get());
+		Assert.assertEquals(0, pool.getTaskCount());
+	}
+	
+	@Test
+	public void testBatchedTasks() {
+		AtomicInteger sum = new AtomicInteger(0);
+		AtomicInteger largestBatch = new AtomicInteger(0);
+		TaskThreadPool<Integer> pool = new TaskThreadPool<>(2, "task-%d", 16, new TaskThreadPool.TaskExecutor<>() {
+			
+			@Override
+			public void run(@NotNull Integer t) {
+				sum.addAndGet(t);
+			}
+			
+			@Override
+			public void runBatch(@NotNull List<Integer> tasks) {
+				Assert.assertTrue(tasks.size() <= 16);
+				largestBatch.accumulateAndGet(tasks.size(), Math::max);
+				for (Integer t : tasks)
+					run(t);
+			}
+		});
+		pool.start();
+		for (int i = 1; i <= 1000; i++)
+			pool.addTask(i);
+		pool.stop(false);
+		Assert.assertTrue(pool.awaitTermination(1000));
+		Assert.assertEquals(500500, sum.get());
+		Assert.assertTrue(largestBatch.get() >= 1);
+	}
+	
+	@Test
+	public void testTaskException() {
+		AtomicInteger count = new AtomicInteger(0);
+		TaskThreadPool<Integer> pool = new TaskThreadPool<>(1, "task", t -> {
+			count.incrementAndGet();
+			if (t == 0)
+				throw new IllegalStateException("expected");
+		});
+		pool.start();
+		for (int i = 0; i < 10; i++)
+			pool.addTask(i);
+		pool.stop(false);
+		Assert.assertTrue(pool.awaitTermination(1000));
+		Assert.assertEquals(10, count.get());
+	}
+	
+	@Test
+	public void testTasksBeforeStart() {
+		AtomicInteger count = new AtomicInteger(0);
+		TaskThreadPool<Integer> pool = new TaskThreadPool<>(2, "task-%d", t -> count.incrementAndGet());
+		for (int i = 0; i < 5; i++) {
+			try {
+				pool.addTask(i);
+			} catch (AssertionError e) {
+				// Expected with assertions enabled, since the pool has not been started
+			}
+		}
+		pool.start();
+		pool.addTask(5);
+		pool.stop(false);
+		Assert.assertTrue(pool.awaitTermination(1000));
+		Assert.assertEquals(6, count.get());
+		Assert.assertEquals(0, pool.getTaskCount());
+	}
+	
+	@Test
+	public void testKeyedOrdering() {
+		Map<Integer, Integer> lastSeen = new ConcurrentHashMap<>();
+		AtomicBoolean ordered = new AtomicBoolean(true);
+		AtomicInteger count = new AtomicInteger(0);
+		KeyedTaskThreadPool<Integer, Integer> pool = new KeyedTaskThreadPool<>(4, "keyed-%d", 4, (key, t) -> {
+			Integer prev = lastSeen.put(key, t);
+			if (prev != null && prev + 1 != t)
+				ordered.set(false);
+			count.incrementAndGet();
+		});
+		pool.start();
+		for (int i = 0; i < 1000; i++) {
+			for (int key = 0; key < 8; key++)
+				pool.addTask(key, i);
+		}
+		pool.stop(false);
+		Assert.assertTrue(pool.awaitTermination(1000));
+		Assert.assertTrue(ordered.get());
+		Assert.assertEquals(8000, count.get());
+		Assert.assertEquals(0, pool.getTaskCount());
+		Assert.assertEquals(0, pool.getActiveKeyCount());
+	}
+	
+}
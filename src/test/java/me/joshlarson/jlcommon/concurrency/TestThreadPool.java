@@ -26,11 +26,17 @@ package me.joshlarson.jlcommon.concurrency;
 import me.joshlarson.jlcommon.concurrency.ThreadPool.PrioritizedRunnable;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RunWith(JUnit4.class)
 public class TestThreadPool {
@@ -93,6 +99,19 @@ public class TestThreadPool {
 		Assert.assertTrue(valid.get());
 	}
 	
+	@Test
+	public void testThreadAffinity() {
+		Assume.assumeTrue("taskset is not available", isTasksetAvailable());
+		AtomicReference<String> allowed = new AtomicReference<>(null);
+		ThreadPool thread = new ThreadPool(1, "thread");
+		thread.setAffinity(0);
+		thread.start();
+		thread.execute(() -> allowed.set(getAllowedCpus()));
+		thread.stop(false);
+		thread.awaitTermination(1000);
+		Assert.assertEquals("0", allowed.get());
+	}
+	
 	@Test
 	public void testPrioritizationEnabled() {
 		ThreadPool thread = new ThreadPool(true, 1, "thread");
@@ -110,6 +129,28 @@ public class TestThreadPool {
 		thread.execute(() -> {});
 	}
 	
+	private static boolean isTasksetAvailable() {
+		if (!Files.isReadable(Paths.get("/proc/thread-self/status")))
+			return false;
+		for (String directory : System.getenv().getOrDefault("PATH", "").split(File.pathSeparator)) {
+			if (Files.isExecutable(Paths.get(directory, "taskset")))
+				return true;
+		}
+		return false;
+	}
+	
+	private static String getAllowedCpus() {
+		try {
+			for (String line : Files.readAllLines(Paths.get("/proc/thread-self/status"))) {
+				if (line.startsWith("Cpus_allowed_list:"))
+					return line.substring(line.indexOf(':') + 1).trim();
+			}
+		} catch (IOException e) {
+			return e.getMessage();
+		}
+		return null;
+	}
+	
 	private static class TestRunnable implements PrioritizedRunnable {
 		
 		@Override
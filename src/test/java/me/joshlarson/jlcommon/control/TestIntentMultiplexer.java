@@ -0,0 +1,114 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.control;
+
+import me.joshlarson.jlcommon.control.IntentMultiplexer.Multiplexer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class TestIntentMultiplexer {
+	
+	@Test
+	public void testExactMatch() {
+		PacketService service = new PacketService();
+		IntentMultiplexer multiplexer = new IntentMultiplexer(service, String.class, Packet.class);
+		multiplexer.call("a", new LoginPacket());
+		multiplexer.call("b", new ChatPacket());
+		Assert.assertEquals(List.of("login:a", "chat:b"), service.calls);
+	}
+	
+	@Test
+	public void testSuperclassMatch() {
+		PacketService service = new PacketService();
+		IntentMultiplexer multiplexer = new IntentMultiplexer(service, String.class, Packet.class);
+		multiplexer.call("a", new AdminLoginPacket());
+		multiplexer.call("b", new AdminLoginPacket());
+		multiplexer.call("c", new Packet() {});
+		Assert.assertEquals(List.of("login:a", "login:b"), service.calls);
+	}
+	
+	@Test
+	public void testInterfaceMatch() {
+		PacketService service = new PacketService();
+		IntentMultiplexer multiplexer = new IntentMultiplexer(service, Object.class);
+		multiplexer.call(new PingPacket());
+		multiplexer.call(new Object[]{new PingPacket()});
+		Assert.assertEquals(List.of("ping", "ping"), service.calls);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testWrongArity() {
+		new IntentMultiplexer(new PacketService(), String.class, Packet.class).call(new LoginPacket());
+	}
+	
+	@Test
+	public void testExceptionIsLogged() {
+		PacketService service = new PacketService();
+		IntentMultiplexer multiplexer = new IntentMultiplexer(service, String.class, Packet.class);
+		multiplexer.call("fail", new ChatPacket());
+		Assert.assertEquals(List.of("chat:fail"), service.calls);
+	}
+	
+	public static class PacketService extends Service {
+		
+		private final List<String> calls = new ArrayList<>();
+		
+		@Multiplexer
+		private void handleLogin(String source, LoginPacket packet) {
+			calls.add("login:" + source);
+		}
+		
+		@Multiplexer
+		private void handleChat(String source, ChatPacket packet) {
+			calls.add("chat:" + source);
+			if (source.equals("fail"))
+				throw new IllegalStateException("expected");
+		}
+		
+		@Multiplexer
+		private void handlePing(Pingable ping) {
+			calls.add("ping");
+		}
+		
+	}
+	
+	public interface Packet { }
+	
+	public interface Pingable { }
+	
+	public static class LoginPacket implements Packet { }
+	
+	public static class AdminLoginPacket extends LoginPacket { }
+	
+	public static class ChatPacket implements Packet { }
+	
+	public static class PingPacket implements Pingable { }
+	
+}
@@ -23,12 +23,20 @@
  ***********************************************************************************/
 package me.joshlarson.jlcommon.control;
 
+import me.joshlarson.jlcommon.control.Manager.LifecyclePhase;
 import me.joshlarson.jlcommon.control.Manager.ManagerCreationException;
+import me.joshlarson.jlcommon.control.ManagerStructure.Dependency;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @RunWith(JUnit4.class)
 public class TestManager {
 	
@@ -59,8 +67,300 @@ public class TestManager {
 		Assert.assertSame(TestService.class, subManager.getChildren().get(0).getClass());
 	}
 	
+	@Test(timeout = 10000)
+	public void testRunStopsOnNotification() throws InterruptedException {
+		TestManagerFailing manager = new TestManagerFailing();
+		NotifyingService service = (NotifyingService) manager.getChildren().get(0);
+		Thread failer = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				return;
+			}
+			service.fail();
+		});
+		failer.start();
+		long start = System.nanoTime();
+		Manager.run(List.of(manager), 60000);
+		Assert.assertTrue(System.nanoTime() - start < 5_000_000_000L);
+		Assert.assertFalse(manager.isOperational());
+		failer.join();
+	}
+	
+	@Test(timeout = 10000)
+	public void testRunPollsLegacyServices() {
+		PollingService service = new PollingService();
+		service.operational = false;
+		Manager.run(List.of(service), 10);
+	}
+	
+	@Test
+	public void testDependencyOrder() {
+		EVENTS.clear();
+		TestDependencyManager manager = new TestDependencyManager();
+		Assert.assertTrue(manager.initialize());
+		Assert.assertTrue(manager.start());
+		assertBefore("initialize:DatabaseService", "initialize:CacheService");
+		assertBefore("initialize:CacheService", "initialize:ApiService");
+		assertBefore("initialize:NetworkService", "initialize:ApiService");
+		assertBefore("start:CacheService", "start:ApiService");
+		Assert.assertTrue(manager.stop());
+		Assert.assertTrue(manager.terminate());
+		assertBefore("stop:ApiService", "stop:CacheService");
+		assertBefore("stop:CacheService", "stop:DatabaseService");
+		assertBefore("terminate:ApiService", "terminate:NetworkService");
+		Assert.assertEquals(16, EVENTS.size());
+	}
+	
+	@Test
+	public void testParallelFailure() {
+		EVENTS.clear();
+		TestFailingDependencyManager manager = new TestFailingDependencyManager();
+		Assert.assertFalse(manager.initialize());
+		Assert.assertFalse(EVENTS.contains("initialize:ApiService"));
+		Assert.assertTrue(manager.terminate());
+		Assert.assertFalse(EVENTS.contains("terminate:FailingService"));
+	}
+	
+	@Test
+	public void testLifecycleTiming() {
+		TestManagerMultipleDepth manager = new TestManagerMultipleDepth();
+		Assert.assertTrue(manager.initialize());
+		LifecycleTiming timing = manager.getLifecycleTiming(LifecyclePhase.INITIALIZE);
+		Assert.assertSame(TestManagerMultipleDepth.class, timing.getService());
+		Assert.assertEquals(1, timing.getChildren().size());
+		LifecycleTiming child = timing.getChildren().get(0);
+		Assert.assertSame(TestManagerSingleDepth.class, child.getService());
+		Assert.assertEquals(1, child.getChildren().size());
+		Assert.assertSame(TestService.class, child.getChildren().get(0).getService());
+		Assert.assertTrue(timing.getDuration(TimeUnit.NANOSECONDS) >= child.getDuration(TimeUnit.NANOSECONDS));
+		
+		String [] stacks = timing.toFoldedStacks().split("\n");
+		Assert.assertEquals(3, stacks.length);
+		Assert.assertTrue(stacks[0].startsWith("initialize;TestManagerMultipleDepth "));
+		Assert.assertTrue(stacks[2].startsWith("initialize;TestManagerMultipleDepth;TestManagerSingleDepth;TestService "));
+		
+		Assert.assertTrue(manager.getLifecycleTiming(LifecyclePhase.START).getChildren().isEmpty());
+		Assert.assertTrue(manager.terminate());
+	}
+	
+	@Test
+	public void testParallelLifecycleTiming() {
+		TestDependencyManager manager = new TestDependencyManager();
+		Assert.assertTrue(manager.initialize());
+		LifecycleTiming timing = manager.getLifecycleTiming(LifecyclePhase.INITIALIZE);
+		Assert.assertEquals(4, timing.getChildren().size());
+		for (LifecycleTiming child : timing.getChildren())
+			Assert.assertTrue(child.getDuration(TimeUnit.MILLISECONDS) >= 10);
+		Assert.assertTrue(manager.terminate());
+	}
+	
+	@Test
+	public void testLazyChildOnDemand() {
+		EVENTS.clear();
+		TestLazyManager manager = new TestLazyManager();
+		Assert.assertTrue(manager.initialize());
+		Assert.assertTrue(manager.start());
+		Assert.assertFalse(EVENTS.contains("initialize:CacheService"));
+		
+		CacheService cache = manager.getChild(CacheService.class);
+		Assert.assertSame(cache, manager.getChild(CacheService.class));
+		Assert.assertSame(TestService.class, manager.getChild(TestService.class).getClass());
+		assertBefore("initialize:CacheService", "start:CacheService");
+		
+		Assert.assertTrue(manager.stop());
+		Assert.assertTrue(manager.terminate());
+		assertBefore("stop:CacheService", "terminate:CacheService");
+		Assert.assertEquals(4, EVENTS.size());
+	}
+	
+	@Test(timeout = 10000)
+	public void testLazyChildOnIntent() throws InterruptedException {
+		EVENTS.clear();
+		LazyIntentService.CREATED.set(0);
+		try (IntentManager intentManager = new IntentManager(2)) {
+			TestLazyManager manager = new TestLazyManager();
+			manager.setIntentManager(intentManager);
+			Assert.assertTrue(manager.initialize());
+			Assert.assertEquals(0, LazyIntentService.CREATED.get());
+			
+			for (int i = 0; i < 10; i++) {
+				LazyIntent intent = new LazyIntent();
+				intentManager.broadcastIntent(intent);
+				while (!intent.isComplete())
+					Thread.sleep(1);
+			}
+			LazyIntentService service = manager.getChild(LazyIntentService.class);
+			Assert.assertEquals(1, LazyIntentService.CREATED.get());
+			Assert.assertEquals(10, service.handled.get());
+			Assert.assertTrue(manager.terminate());
+			Assert.assertTrue(EVENTS.contains("terminate:LazyIntentService"));
+		}
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnknownChild() {
+		new TestLazyManager().getChild(ApiService.class);
+	}
+	
+	@Test(expected=ManagerCreationException.class)
+	public void testDependencyCycle() {
+		new TestCyclicManager();
+	}
+	
+	@Test(expected=ManagerCreationException.class)
+	public void testUnknownDependency() {
+		new TestUnknownDependencyManager();
+	}
+	
+	private static void assertBefore(String first, String second) {
+		int firstIndex = EVENTS.indexOf(first);
+		int secondIndex = EVENTS.indexOf(second);
+		Assert.assertTrue(first + " missing", firstIndex != -1);
+		Assert.assertTrue(second + " missing", secondIndex != -1);
+		Assert.assertTrue(first + " should happen before " + second, firstIndex < secondIndex);
+	}
+	
+	private static final List<String> EVENTS = Collections.synchronizedList(new ArrayList<>());
+	
+	@Test(timeout = 10000)
+	public void testNotificationIgnoresOverride() {
+		OverridingService service = new OverridingService();
+		service.fail();
+		Assert.assertTrue(service.isOperational());
+		Manager.run(List.of(service), 60000);
+	}
+	
 	public static class TestBadManager extends Manager {}
 	
+	@ManagerStructure(children = { ApiService.class, CacheService.class, DatabaseService.class, NetworkService.class }, threads = 4, dependencies = {
+			@Dependency(service = CacheService.class, dependsOn = DatabaseService.class),
+			@Dependency(service = ApiService.class, dependsOn = { CacheService.class, NetworkService.class })
+	})
+	public static class TestDependencyManager extends Manager {}
+	
+	@ManagerStructure(children = { ApiService.class, FailingService.class, NetworkService.class }, threads = 2, dependencies = {
+			@Dependency(service = ApiService.class, dependsOn = { FailingService.class, NetworkService.class })
+	})
+	public static class TestFailingDependencyManager extends Manager {}
+	
+	@ManagerStructure(children = { ApiService.class, CacheService.class }, dependencies = {
+			@Dependency(service = CacheService.class, dependsOn = ApiService.class),
+			@Dependency(service = ApiService.class, dependsOn = CacheService.class)
+	})
+	public static class TestCyclicManager extends Manager {}
+	
+	@ManagerStructure(children = { ApiService.class }, dependencies = {
+			@Dependency(service = ApiService.class, dependsOn = CacheService.class)
+	})
+	public static class TestUnknownDependencyManager extends Manager {}
+	
+	@ManagerStructure(children = { TestService.class }, lazyChildren = { CacheService.class, LazyIntentService.class })
+	public static class TestLazyManager extends Manager {}
+	
+	public static class RecordingService extends Service {
+		
+		@Override
+		public boolean initialize() {
+			return record("initialize");
+		}
+		
+		@Override
+		public boolean start() {
+			return record("start");
+		}
+		
+		@Override
+		public boolean stop() {
+			return record("stop");
+		}
+		
+		@Override
+		public boolean terminate() {
+			return record("terminate");
+		}
+		
+		protected boolean record(String phase) {
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				return false;
+			}
+			EVENTS.add(phase + ":" + getClass().getSimpleName());
+			return true;
+		}
+		
+	}
+	
+	public static class ApiService extends RecordingService {}
+	
+	public static class CacheService extends RecordingService {}
+	
+	public static class DatabaseService extends RecordingService {}
+	
+	public static class NetworkService extends RecordingService {}
+	
+	public static class LazyIntentService extends RecordingService {
+		
+		private static final AtomicInteger CREATED = new AtomicInteger(0);
+		
+		private final AtomicInteger handled = new AtomicInteger(0);
+		
+		public LazyIntentService() {
+			CREATED.incrementAndGet();
+		}
+		
+		@IntentHandler
+		private void handleLazyIntent(LazyIntent intent) {
+			handled.incrementAndGet();
+		}
+		
+	}
+	
+	public static class LazyIntent extends Intent {
+		
+	}
+	
+	public static class FailingService extends RecordingService {
+		
+		@Override
+		public boolean initialize() {
+			return false;
+		}
+		
+	}
+	
+	@ManagerStructure(children = { NotifyingService.class })
+	public static class TestManagerFailing extends Manager {}
+	
+	public static class NotifyingService extends Service {
+		
+		public void fail() {
+			notifyNotOperational();
+		}
+		
+	}
+	
+	public static class OverridingService extends NotifyingService {
+		
+		@Override
+		public boolean isOperational() {
+			return true;
+		}
+		
+	}
+	
+	public static class PollingService extends Service {
+		
+		private volatile boolean operational = true;
+		
+		@Override
+		public boolean isOperational() {
+			return operational;
+		}
+		
+	}
+	
 	@ManagerStructure(children = { TestService.class})
 	public static class TestManagerSingleDepth extends Manager {}
 	
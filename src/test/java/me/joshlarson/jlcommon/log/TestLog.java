@@ -0,0 +1,385 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log;
+
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import me.joshlarson.jlcommon.log.Log.OverflowPolicy;
+import me.joshlarson.jlcommon.log.log_wrapper.StreamLogWrapper;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingFormatArgumentException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class TestLog {
+	
+	@After
+	public void resetLog() {
+		Log.stopAsync();
+		Log.clearWrappers();
+		Log.setLevels(Map.of());
+	}
+	
+	@Test
+	public void testSynchronousFormat() {
+		RecordingWrapper wrapper = new RecordingWrapper();
+		Log.addWrapper(wrapper);
+		Log.i("Hello %s %d", "World", 5);
+		List<String> lines = wrapper.getLines();
+		Assert.assertEquals(1, lines.size());
+		Assert.assertTrue(lines.get(0), lines.get(0).matches("\\d{2}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3} I: Hello World 5"));
+	}
+	
+	@Test
+	public void testFormatMatchesStringFormat() {
+		RecordingWrapper wrapper = new RecordingWrapper();
+		Log.addWrapper(wrapper);
+		assertFormat(wrapper, "%s %d %% done", "task", 42L);
+		assertFormat(wrapper, "%s and %s", null, new StringBuilder("builder"));
+		assertFormat(wrapper, "%d%n%d", (byte) -3, Integer.MIN_VALUE);
+		assertFormat(wrapper, "%5d|%-4s|%.2f", 7, "ab", 1.5);
+		assertFormat(wrapper, "%2$s %1$s", "first", "second");
+		assertFormat(wrapper, "%s", new BigInteger("123456789012345678901234567890"));
+		assertFormat(wrapper, "no arguments used", "extra");
+	}
+	
+	@Test(expected = MissingFormatArgumentException.class)
+	public void testFormatMissingArgument() {
+		Log.addWrapper(new RecordingWrapper());
+		Log.i("%s %s", "one");
+	}
+	
+	@Test
+	public void testStreamWrapperEncoding() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Log.addWrapper(new StreamLogWrapper(output));
+		Log.i("h\u00e9llo %s", "\u20ac \ud83d\ude00");
+		String line = new String(output.toByteArray(), StandardCharsets.UTF_8);
+		Assert.assertTrue(line, line.endsWith("I: h\u00e9llo \u20ac \ud83d\ude00" + System.lineSeparator()));
+	}
+	
+	@Test
+	public void testLevelGating() {
+		AtomicInteger supplied = new AtomicInteger(0);
+		Assert.assertFalse(Log.isEnabled(LogLevel.ASSERT));
+		RecordingWrapper wrapper = new RecordingWrapper(LogLevel.INFO);
+		Log.addWrapper(wrapper);
+		Assert.assertFalse(Log.isEnabled(LogLevel.DATA));
+		Assert.assertTrue(Log.isEnabled(LogLevel.INFO));
+		Log.t(() -> "trace " + supplied.incrementAndGet());
+		Log.d("data %d", 1);
+		Log.i(() -> "info " + supplied.incrementAndGet());
+		Assert.assertEquals(1, supplied.get());
+		Assert.assertEquals(1, wrapper.getLines().size());
+		Assert.assertTrue(wrapper.getLines().get(0).endsWith("I: info 1"));
+		
+		Log.addWrapper(new RecordingWrapper(LogLevel.TRACE));
+		Assert.assertTrue(Log.isEnabled(LogLevel.TRACE));
+		Log.clearWrappers();
+		Assert.assertFalse(Log.isEnabled(LogLevel.ASSERT));
+	}
+	
+	@Test
+	public void testLoggerLevels() {
+		RecordingWrapper wrapper = new RecordingWrapper();
+		Log.addWrapper(wrapper);
+		Logger network = Log.getLogger("app.network");
+		Logger client = Log.getLogger("app.network.Client$Handler");
+		Logger database = Log.getLogger("app.database");
+		Assert.assertSame(network, Log.getLogger("app.network"));
+		
+		Log.setLevel("", LogLevel.WARN);
+		Log.setLevel("app.network", LogLevel.TRACE);
+		Assert.assertFalse(Log.isEnabled(LogLevel.INFO));
+		Assert.assertFalse(database.isEnabled(LogLevel.INFO));
+		Assert.assertTrue(network.isEnabled(LogLevel.TRACE));
+		Assert.assertTrue(client.isEnabled(LogLevel.TRACE));
+		Assert.assertEquals(LogLevel.TRACE, Log.getLevel("app.network.Client"));
+		
+		Log.i("root info");
+		database.i("database info");
+		client.t("client trace");
+		database.w("database warn");
+		Assert.assertEquals(2, wrapper.getLines().size());
+		
+		Log.setLevel("app.network.Client", LogLevel.ERROR);
+		Assert.assertFalse(client.isEnabled(LogLevel.WARN));
+		Assert.assertTrue(network.isEnabled(LogLevel.TRACE));
+		Log.setLevels(Map.of("app", LogLevel.INFO));
+		Assert.assertTrue(Log.isEnabled(LogLevel.TRACE));
+		Assert.assertFalse(client.isEnabled(LogLevel.DATA));
+		Assert.assertTrue(Log.getLogger("app.other").isEnabled(LogLevel.INFO));
+		Assert.assertNull(Log.getLevel("other"));
+	}
+	
+	@Test
+	public void testLoggerRespectsWrappers() {
+		StreamLogWrapper wrapper = new StreamLogWrapper(new ByteArrayOutputStream());
+		wrapper.setMinimumLevel(LogLevel.INFO);
+		Log.addWrapper(wrapper);
+		Logger logger = Log.getLogger(TestLog.class);
+		Log.setLevel(TestLog.class.getName(), LogLevel.TRACE);
+		Assert.assertFalse(logger.isEnabled(LogLevel.DATA));
+		wrapper.setMinimumLevel(LogLevel.TRACE);
+		Assert.assertTrue(logger.isEnabled(LogLevel.TRACE));
+		Log.clearWrappers();
+		Assert.assertFalse(logger.isEnabled(LogLevel.ASSERT));
+	}
+	
+	@Test
+	public void testPerWrapperLevels() {
+		RecordingWrapper all = new RecordingWrapper();
+		RecordingWrapper warnings = new RecordingWrapper(LogLevel.WARN);
+		Log.addWrapper(all);
+		Log.addWrapper(warnings);
+		Log.i("info");
+		Log.w("warn");
+		Log.warn("structured").kv("n", 1).log();
+		Assert.assertEquals(3, all.getLines().size());
+		Assert.assertEquals(2, warnings.getLines().size());
+	}
+	
+	@Test
+	public void testStructuredEntry() {
+		RecordingWrapper wrapper = new RecordingWrapper();
+		List<String> structured = new ArrayList<>();
+		Log.addWrapper(wrapper);
+		Log.addWrapper((StructuredLogWrapper) entry -> {
+			StringBuilder str = new StringBuilder(entry.getLevel() + " " + entry.getMessage());
+			for (int i = 0; i < entry.getFieldCount(); i++)
+				str.append(' ').append(entry.getKey(i)).append(':').append(entry.getType(i)).append(':').append(entry.getValue(i));
+			structured.add(str.toString());
+		});
+		Log.info("Player connected").kv("player", "abc").kv("latency", 1520).kv("ratio", 0.5).kv("admin", false).log();
+		Log.w("Plain %d", 5);
+		Assert.assertTrue(wrapper.getLines().get(0).endsWith("I: Player connected player=abc latency=1520 ratio=0.5 admin=false"));
+		Assert.assertEquals(List.of("INFO Player connected player:OBJECT:abc latency:LONG:1520 ratio:DOUBLE:0.5 admin:BOOLEAN:false", "WARN Plain 5"), structured);
+	}
+	
+	@Test
+	public void testStructuredEntryReuse() {
+		RecordingWrapper wrapper = new RecordingWrapper(LogLevel.INFO);
+		Log.addWrapper(wrapper);
+		Log.trace("disabled").kv("key", 1).log();
+		Log.data("disabled").kv("key", "value").log();
+		Assert.assertEquals(0, wrapper.getLines().size());
+		LogEntry first = Log.info("outer");
+		Assert.assertSame(LogEntry.DISABLED, Log.data("disabled"));
+		first.kv("inner", nestedLog()).log();
+		Assert.assertSame(first, Log.info("again"));
+		first.log();
+		List<String> lines = wrapper.getLines();
+		Assert.assertEquals(3, lines.size());
+		Assert.assertTrue(lines.get(0).endsWith("I: nested n=1"));
+		Assert.assertTrue(lines.get(1).endsWith("I: outer inner=2"));
+		Assert.assertTrue(lines.get(2).endsWith("I: again"));
+	}
+	
+	@Test
+	public void testAsyncStructuredEntry() {
+		RecordingWrapper wrapper = new RecordingWrapper();
+		Log.addWrapper(wrapper);
+		Log.startAsync();
+		for (int i = 0; i < 100; i++)
+			Log.info("entry").kv("index", i).log();
+		Log.flush();
+		List<String> lines = wrapper.getLines();
+		Assert.assertEquals(100, lines.size());
+		for (int i = 0; i < 100; i++)
+			Assert.assertTrue(lines.get(i).endsWith("I: entry index=" + i));
+	}
+	
+	@Test
+	public void testAsyncPreservesOrder() throws InterruptedException {
+		RecordingWrapper wrapper = new RecordingWrapper();
+		Log.addWrapper(wrapper);
+		Log.startAsync(64, OverflowPolicy.BLOCK);
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			int thread = i;
+			threads.add(new Thread(() -> {
+				for (int j = 0; j < 1000; j++)
+					Log.d("%d %d", thread, j);
+			}));
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		Log.flush();
+		List<String> lines = wrapper.getLines();
+		Assert.assertEquals(4000, lines.size());
+		int [] next = new int[4];
+		for (String line : lines) {
+			String [] parts = line.substring(line.indexOf(": ") + 2).split(" ");
+			int thread = Integer.parseInt(parts[0]);
+			Assert.assertEquals(next[thread]++, Integer.parseInt(parts[1]));
+		}
+		Assert.assertEquals(0, Log.getDroppedMessages());
+	}
+	
+	@Test
+	public void testAsyncException() throws InterruptedException {
+		RecordingWrapper wrapper = new RecordingWrapper();
+		Log.addWrapper(wrapper);
+		Log.startAsync();
+		Thread thread = new Thread(() -> Log.e(new IllegalStateException("failure", new RuntimeException("cause"))), "exception-thread");
+		thread.start();
+		thread.join();
+		Log.flush();
+		List<String> lines = wrapper.getLines();
+		Assert.assertTrue(lines.get(0), lines.get(0).endsWith("E: Exception in thread \"exception-thread\" java.lang.IllegalStateException: failure"));
+		Assert.assertTrue(lines.stream().anyMatch(line -> line.endsWith("E:   Caused by: java.lang.RuntimeException: cause")));
+	}
+	
+	@Test
+	public void testDropLowLevels() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingWrapper wrapper = new RecordingWrapper() {
+			@Override
+			public void onLog(@NotNull LogLevel level, @NotNull String str) {
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.onLog(level, str);
+			}
+		};
+		Log.addWrapper(wrapper);
+		Log.startAsync(16, OverflowPolicy.DROP_LOW_LEVELS);
+		for (int i = 0; i < 100; i++)
+			Log.t("trace %d", i);
+		Thread warnings = new Thread(() -> {
+			for (int i = 0; i < 20; i++)
+				Log.w("warning %d", i);
+		});
+		warnings.start();
+		release.countDown();
+		warnings.join();
+		Log.flush();
+		Assert.assertTrue(Log.getDroppedMessages() > 0);
+		List<String> lines = wrapper.getLines();
+		Assert.assertEquals(20, lines.stream().filter(line -> line.contains("W: warning")).count());
+		Assert.assertTrue(lines.stream().anyMatch(line -> line.contains("W: Dropped")));
+	}
+	
+	@Test
+	public void testStopAsyncWritesBufferedEvents() {
+		RecordingWrapper wrapper = new RecordingWrapper();
+		Log.addWrapper(wrapper);
+		Log.startAsync();
+		for (int i = 0; i < 100; i++)
+			Log.i("message %d", i);
+		Log.stopAsync();
+		Assert.assertEquals(100, wrapper.getLines().size());
+		Log.i("synchronous");
+		Assert.assertEquals(101, wrapper.getLines().size());
+	}
+	
+	@Test
+	public void testStopAsyncWhileLogging() throws InterruptedException {
+		RecordingWrapper wrapper = new RecordingWrapper();
+		Log.addWrapper(wrapper);
+		for (int run = 0; run < 20; run++) {
+			Log.startAsync(64, OverflowPolicy.BLOCK);
+			CountDownLatch started = new CountDownLatch(4);
+			List<Thread> threads = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				threads.add(new Thread(() -> {
+					started.countDown();
+					for (int j = 0; j < 500; j++)
+						Log.d("message %d", j);
+				}));
+			}
+			for (Thread t : threads)
+				t.start();
+			started.await();
+			Log.stopAsync();
+			for (Thread t : threads)
+				t.join();
+			Assert.assertEquals(2000 * (run + 1), wrapper.getLines().size());
+		}
+	}
+	
+	private static int nestedLog() {
+		Log.info("nested").kv("n", 1).log();
+		return 2;
+	}
+	
+	private static void assertFormat(RecordingWrapper wrapper, String format, Object... args) {
+		Log.i(format, args);
+		List<String> lines = wrapper.getLines();
+		String line = lines.get(lines.size() - 1);
+		Assert.assertEquals(String.format(format, args), line.substring(line.indexOf("I: ") + 3));
+	}
+	
+	private static class RecordingWrapper implements LogWrapper {
+		
+		private final List<String> lines = new ArrayList<>();
+		private final LogLevel level;
+		
+		public RecordingWrapper() {
+			this(LogLevel.TRACE);
+		}
+		
+		public RecordingWrapper(@NotNull LogLevel level) {
+			this.level = level;
+		}
+		
+		@NotNull
+		@Override
+		public LogLevel getMinimumLevel() {
+			return level;
+		}
+		
+		@Override
+		public void onLog(@NotNull LogLevel level, @NotNull String str) {
+			synchronized (lines) {
+				lines.add(str);
+			}
+		}
+		
+		public List<String> getLines() {
+			synchronized (lines) {
+				return new ArrayList<>(lines);
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,152 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.log.Log;
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import me.joshlarson.jlcommon.log.LogWrapper;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class TestBinaryLogWrapper {
+	
+	@After
+	public void resetLog() {
+		Log.clearWrappers();
+	}
+	
+	@Test
+	public void testDecodeMatchesText() throws IOException {
+		File file = File.createTempFile("TestBinaryLogWrapper", ".bin");
+		try {
+			List<String> expected = new ArrayList<>();
+			BinaryLogWrapper wrapper = new BinaryLogWrapper(file);
+			Log.addWrapper(wrapper);
+			Log.addWrapper((LogWrapper) (level, str) -> expected.add(str));
+			for (int i = 0; i < 3; i++)
+				Log.d("Packet %d from %s: %x bytes, %.2f ms, %b %c", i, "client", 255 + i, 1.25f * i, i % 2 == 0, 'q');
+			Log.i("No arguments");
+			Log.w("Mixed %s %s %d", null, List.of(1, 2), Long.MAX_VALUE);
+			Log.e(new IllegalStateException("failure"));
+			wrapper.close();
+			
+			Assert.assertEquals(expected, decode(Files.readAllBytes(file.toPath())));
+		} finally {
+			Assert.assertTrue(file.delete());
+		}
+	}
+	
+	@Test
+	public void testTruncatedRecord() throws IOException {
+		File file = File.createTempFile("TestBinaryLogWrapper", ".bin");
+		try {
+			BinaryLogWrapper wrapper = new BinaryLogWrapper(file);
+			wrapper.onLog(LogLevel.INFO, 0, "first %d", new Object[]{1});
+			wrapper.onLog(LogLevel.INFO, 0, "second %d", new Object[]{2});
+			wrapper.close();
+			byte [] data = Files.readAllBytes(file.toPath());
+			List<String> lines = decode(Arrays.copyOf(data, data.length - 3));
+			Assert.assertEquals(1, lines.size());
+			Assert.assertTrue(lines.get(0).endsWith("I: first 1"));
+		} finally {
+			Assert.assertTrue(file.delete());
+		}
+	}
+	
+	@Test
+	public void testOnlyFormatsWithArgumentsAreInterned() throws IOException {
+		File file = File.createTempFile("TestBinaryLogWrapper", ".bin");
+		try {
+			BinaryLogWrapper wrapper = new BinaryLogWrapper(file);
+			for (int i = 0; i < 2; i++) {
+				wrapper.onLog(LogLevel.INFO, 0, "plain message", new Object[0]);
+				wrapper.onLog(LogLevel.INFO, 0, "format %d", new Object[]{i});
+			}
+			wrapper.close();
+			byte [] data = Files.readAllBytes(file.toPath());
+			String contents = new String(data, StandardCharsets.ISO_8859_1);
+			Assert.assertEquals(2, contents.split("plain message", -1).length - 1);
+			Assert.assertEquals(1, contents.split("format %d", -1).length - 1);
+			Assert.assertEquals(List.of("plain message", "format 0", "plain message", "format 1"), stripPrefixes(decode(data)));
+		} finally {
+			Assert.assertTrue(file.delete());
+		}
+	}
+	
+	@Test
+	public void testTooManyArguments() throws IOException {
+		File file = File.createTempFile("TestBinaryLogWrapper", ".bin");
+		try {
+			Object [] args = new Object[300];
+			Arrays.fill(args, 7);
+			String format = "%d ".repeat(args.length).trim();
+			BinaryLogWrapper wrapper = new BinaryLogWrapper(file);
+			wrapper.onLog(LogLevel.INFO, 0, format, args);
+			wrapper.onLog(LogLevel.INFO, 0, "after %d", new Object[]{1});
+			wrapper.close();
+			Assert.assertEquals(List.of(String.format(format, args), "after 1"), stripPrefixes(decode(Files.readAllBytes(file.toPath()))));
+		} finally {
+			Assert.assertTrue(file.delete());
+		}
+	}
+	
+	@Test(expected = IOException.class)
+	public void testInvalidHeader() throws IOException {
+		new BinaryLogDecoder(new ByteArrayInputStream(new byte[]{'n', 'o', 'p', 'e', 0, 1}));
+	}
+	
+	@NotNull
+	private static List<String> stripPrefixes(@NotNull List<String> lines) {
+		List<String> messages = new ArrayList<>();
+		for (String line : lines)
+			messages.add(line.substring(line.indexOf(": ") + 2));
+		return messages;
+	}
+	
+	@NotNull
+	private static List<String> decode(@NotNull byte [] data) throws IOException {
+		List<String> lines = new ArrayList<>();
+		try (BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(data))) {
+			String line;
+			while ((line = decoder.readLine()) != null)
+				lines.add(line);
+		}
+		return lines;
+	}
+	
+}
@@ -0,0 +1,77 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.log.Log;
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class TestJsonLinesLogWrapper {
+	
+	@After
+	public void resetLog() {
+		Log.clearWrappers();
+	}
+	
+	@Test
+	public void testStructuredFields() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Log.addWrapper(new JsonLinesLogWrapper(output));
+		Log.info("Player \"connected\"").kv("player", "a\\b\n").kv("latency", 1520).kv("ratio", 0.25).kv("admin", true).kv("missing", null).kv("items", List.of(1, 2)).kv("nan", Double.NaN).kv("size", 3.5f).log();
+		String line = output.toString(StandardCharsets.UTF_8);
+		Assert.assertTrue(line, line.matches("\\{\"time\":\\d+,\"level\":\"INFO\",\"message\":\"Player \\\\\"connected\\\\\"\",\"player\":\"a\\\\\\\\b\\\\n\",\"latency\":1520,\"ratio\":0.25,\"admin\":true,\"missing\":null,\"items\":\"\\[1, 2\\]\",\"nan\":\"NaN\",\"size\":3.5}\n"));
+	}
+	
+	@Test
+	public void testReservedFieldNames() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Log.addWrapper(new JsonLinesLogWrapper(output));
+		Log.info("Reserved").kv("time", 5).kv("level", "custom").kv("message", true).kv("timeout", 1).log();
+		String line = output.toString(StandardCharsets.UTF_8);
+		Assert.assertTrue(line, line.matches("\\{\"time\":\\d+,\"level\":\"INFO\",\"message\":\"Reserved\",\"fields.time\":5,\"fields.level\":\"custom\",\"fields.message\":true,\"timeout\":1}\n"));
+	}
+	
+	@Test
+	public void testPlainMessages() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		JsonLinesLogWrapper wrapper = new JsonLinesLogWrapper(output);
+		Log.addWrapper(wrapper);
+		Log.w("Plain %d\t%s", 5, "\u0001");
+		wrapper.onLog(LogLevel.ERROR, "direct");
+		String [] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+		Assert.assertEquals(2, lines.length);
+		Assert.assertTrue(lines[0], lines[0].matches("\\{\"time\":\\d+,\"level\":\"WARN\",\"message\":\"Plain 5\\\\t\\\\u0001\"}"));
+		Assert.assertTrue(lines[1], lines[1].matches("\\{\"time\":\\d+,\"level\":\"ERROR\",\"message\":\"direct\"}"));
+	}
+	
+}
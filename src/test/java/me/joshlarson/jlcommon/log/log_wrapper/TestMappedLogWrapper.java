@@ -0,0 +1,147 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.concurrency.Delay;
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RunWith(JUnit4.class)
+public class TestMappedLogWrapper {
+	
+	private Path directory;
+	
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("TestMappedLogWrapper");
+	}
+	
+	@After
+	public void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path path : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+				Files.delete(path);
+		}
+	}
+	
+	@Test
+	public void testSegmentRolling() throws IOException {
+		MappedLogWrapper wrapper = new MappedLogWrapper(directory.resolve("server.log").toFile(), 4096, 10, TimeUnit.MILLISECONDS);
+		Assert.assertEquals(directory.resolve("server-000000.log"), wrapper.getCurrentSegment());
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			String line = String.format("line %04d", i);
+			wrapper.onLog(LogLevel.INFO, line);
+			expected.append(line).append(System.lineSeparator());
+		}
+		String longLine = "x".repeat(5000);
+		wrapper.onLog(LogLevel.INFO, longLine);
+		expected.append(longLine).append(System.lineSeparator());
+		wrapper.flush();
+		wrapper.close();
+		
+		List<Path> segments = awaitSegments(expected.length());
+		Assert.assertTrue(segments.size() > 3);
+		ByteArrayOutputStream contents = new ByteArrayOutputStream();
+		for (Path segment : segments) {
+			String segmentContents = Files.readString(segment);
+			// Only the line that is longer than a whole segment may be split
+			Assert.assertTrue(segment.toString(), segmentContents.endsWith(System.lineSeparator()) || segmentContents.matches("x+"));
+			contents.write(Files.readAllBytes(segment));
+		}
+		Assert.assertEquals(expected.toString(), contents.toString(StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void testContinuesAfterExistingSegments() throws IOException {
+		Files.write(directory.resolve("server-000004.log"), new byte[0]);
+		MappedLogWrapper wrapper = new MappedLogWrapper(directory.resolve("server.log").toFile(), 4096, 0, TimeUnit.MILLISECONDS);
+		Assert.assertEquals(directory.resolve("server-000005.log"), wrapper.getCurrentSegment());
+		wrapper.onLog(LogLevel.INFO, "appended");
+		wrapper.close();
+		Assert.assertEquals(List.of("appended"), Files.readAllLines(directory.resolve("server-000005.log")));
+	}
+	
+	@Test
+	public void testKeepsLoggingWhenSegmentsCannotBeCreated() throws IOException {
+		MappedLogWrapper wrapper = new MappedLogWrapper(directory.resolve("server.log").toFile(), 4096, 0, TimeUnit.MILLISECONDS);
+		// Segment creation never overwrites an existing file, so these block the segments after the next one
+		for (int i = 2; i <= 5; i++)
+			Files.write(directory.resolve(String.format("server-%06d.log", i)), new byte[0]);
+		for (int i = 0; i < 1000; i++)
+			wrapper.onLog(LogLevel.INFO, String.format("line %04d", i));
+		wrapper.close();
+		
+		List<String> lines = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path segment : files.sorted().collect(Collectors.toList()))
+				lines.addAll(Files.readString(segment).replaceAll("\u0000+$", "").lines().collect(Collectors.toList()));
+		}
+		Assert.assertEquals("line 0999", lines.get(lines.size() - 1));
+		Assert.assertTrue(lines.size() > 990);
+		Assert.assertTrue(lines.stream().anyMatch(line -> line.length() < 9));
+		int next = 0;
+		for (String line : lines) {
+			// Every line is complete, except the one that was cut short to fit into the full segment
+			while (next < 1000 && !String.format("line %04d", next).startsWith(line))
+				next++;
+			Assert.assertTrue(line, next < 1000);
+			next++;
+		}
+	}
+	
+	private List<Path> awaitSegments(long totalSize) throws IOException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (true) {
+			List<Path> segments;
+			long size = 0;
+			try (Stream<Path> files = Files.list(directory)) {
+				segments = files.sorted().collect(Collectors.toList());
+			}
+			for (Path segment : segments)
+				size += Files.size(segment);
+			if (size == totalSize || System.nanoTime() >= deadline)
+				return segments;
+			Delay.sleepMilli(5);
+		}
+	}
+	
+}
@@ -0,0 +1,160 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.concurrency.Delay;
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+@RunWith(JUnit4.class)
+public class TestRollingFileLogWrapper {
+	
+	private Path directory;
+	
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("TestRollingFileLogWrapper");
+	}
+	
+	@After
+	public void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path path : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+				Files.delete(path);
+		}
+	}
+	
+	@Test
+	public void testRotateBySize() throws IOException {
+		File file = directory.resolve("server.log").toFile();
+		RollingFileLogWrapper wrapper = new RollingFileLogWrapper(file, 100, 100);
+		for (int i = 0; i < 50; i++)
+			wrapper.onLog(LogLevel.INFO, String.format("line %02d", i));
+		wrapper.close();
+		List<Path> archives = awaitArchives(list -> list.stream().allMatch(p -> p.toString().endsWith(".log.gz")));
+		Assert.assertTrue(archives.size() > 1);
+		List<String> lines = new ArrayList<>();
+		for (Path archive : archives) {
+			Assert.assertTrue(Files.size(archive) > 0);
+			lines.addAll(readCompressed(archive));
+		}
+		lines.addAll(Files.readAllLines(file.toPath()));
+		Assert.assertEquals(50, lines.size());
+		for (int i = 0; i < 50; i++)
+			Assert.assertEquals(String.format("line %02d", i), lines.get(i));
+	}
+	
+	@Test
+	public void testRetention() throws IOException {
+		File file = directory.resolve("server.log").toFile();
+		RollingFileLogWrapper wrapper = new RollingFileLogWrapper(file, 0, null, 2, FlushPolicy.IMMEDIATE);
+		for (int i = 0; i < 5; i++) {
+			wrapper.onLog(LogLevel.INFO, "segment " + i);
+			wrapper.rotate();
+		}
+		wrapper.onLog(LogLevel.INFO, "current");
+		wrapper.close();
+		List<Path> archives = awaitArchives(list -> list.size() == 2 && list.stream().allMatch(p -> p.toString().endsWith(".log.gz")));
+		Assert.assertEquals(List.of("segment 3"), readCompressed(archives.get(0)));
+		Assert.assertEquals(List.of("segment 4"), readCompressed(archives.get(1)));
+		Assert.assertEquals(List.of("current"), Files.readAllLines(file.toPath()));
+	}
+	
+	@Test
+	public void testReopenFailureKeepsCurrentFile() throws IOException {
+		File file = directory.resolve("server.log").toFile();
+		AtomicBoolean failReopen = new AtomicBoolean(true);
+		RollingFileLogWrapper wrapper = new RollingFileLogWrapper(file, 0, null, 10, FlushPolicy.IMMEDIATE) {
+			@Override
+			FileChannel reopenFile() throws IOException {
+				if (failReopen.get())
+					throw new IOException("Simulated failure");
+				return super.reopenFile();
+			}
+		};
+		wrapper.onLog(LogLevel.INFO, "before");
+		wrapper.rotate();
+		wrapper.onLog(LogLevel.INFO, "after");
+		Assert.assertEquals(List.of("before", "after"), Files.readAllLines(file.toPath()));
+		Assert.assertEquals(List.of(), awaitArchives(List::isEmpty));
+		failReopen.set(false);
+		wrapper.rotate();
+		wrapper.onLog(LogLevel.INFO, "current");
+		wrapper.close();
+		List<Path> archives = awaitArchives(list -> list.size() == 1 && list.get(0).toString().endsWith(".log.gz"));
+		Assert.assertEquals(1, archives.size());
+		Assert.assertEquals(List.of("before", "after"), readCompressed(archives.get(0)));
+		Assert.assertEquals(List.of("current"), Files.readAllLines(file.toPath()));
+	}
+	
+	private List<Path> awaitArchives(Predicate<List<Path>> condition) throws IOException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (true) {
+			List<Path> archives;
+			try (Stream<Path> files = Files.list(directory)) {
+				archives = files.filter(p -> p.getFileName().toString().startsWith("server-")).sorted(Comparator.comparing(TestRollingFileLogWrapper::getArchiveOrder)).collect(Collectors.toList());
+			}
+			if (condition.test(archives) || System.nanoTime() >= deadline)
+				return archives;
+			Delay.sleepMilli(5);
+		}
+	}
+	
+	private static String getArchiveOrder(Path archive) {
+		// server-<date>-<time>[-index].log.gz, where the first archive in each second has no index
+		String [] parts = archive.getFileName().toString().split("[-.]");
+		int index = parts[3].equals("log") ? 0 : Integer.parseInt(parts[3]);
+		return String.format("%s-%s-%05d", parts[1], parts[2], index);
+	}
+	
+	private static List<String> readCompressed(Path archive) throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(archive)), StandardCharsets.UTF_8))) {
+			return reader.lines().collect(Collectors.toList());
+		}
+	}
+	
+}
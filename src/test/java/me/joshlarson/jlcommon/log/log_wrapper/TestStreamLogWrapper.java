@@ -0,0 +1,140 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.log.log_wrapper;
+
+import me.joshlarson.jlcommon.concurrency.Delay;
+import me.joshlarson.jlcommon.log.Log;
+import me.joshlarson.jlcommon.log.Log.LogLevel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class TestStreamLogWrapper {
+	
+	@After
+	public void resetLog() {
+		Log.clearWrappers();
+	}
+	
+	@Test
+	public void testImmediateFlush() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		StreamLogWrapper wrapper = new StreamLogWrapper(output);
+		wrapper.onLog(LogLevel.TRACE, "first");
+		Assert.assertEquals("first" + System.lineSeparator(), output.toString(StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void testFlushOnLevel() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		StreamLogWrapper wrapper = new StreamLogWrapper(output, new FlushPolicy(1024, 0, TimeUnit.MILLISECONDS, LogLevel.WARN));
+		wrapper.onLog(LogLevel.INFO, "info");
+		Assert.assertEquals(0, output.size());
+		wrapper.onLog(LogLevel.WARN, "warning");
+		Assert.assertEquals("info" + System.lineSeparator() + "warning" + System.lineSeparator(), output.toString(StandardCharsets.UTF_8));
+		wrapper.close();
+	}
+	
+	@Test
+	public void testFlushOnSize() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		StreamLogWrapper wrapper = new StreamLogWrapper(output, new FlushPolicy(100, 0, TimeUnit.MILLISECONDS, LogLevel.ASSERT));
+		int written = 0;
+		while (written < 100) {
+			Assert.assertEquals(0, output.size());
+			wrapper.onLog(LogLevel.INFO, "0123456789");
+			written += 10 + System.lineSeparator().length();
+		}
+		Assert.assertEquals(written, output.size());
+		wrapper.close();
+	}
+	
+	@Test
+	public void testFlushOnTime() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		StreamLogWrapper wrapper = new StreamLogWrapper(output, new FlushPolicy(1024 * 1024, 10, TimeUnit.MILLISECONDS, LogLevel.ASSERT));
+		wrapper.onLog(LogLevel.INFO, "delayed");
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (output.size() == 0 && System.nanoTime() < deadline)
+			Delay.sleepMilli(1);
+		Assert.assertEquals("delayed" + System.lineSeparator(), output.toString(StandardCharsets.UTF_8));
+		wrapper.close();
+	}
+	
+	@Test
+	public void testLogFlush() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Log.addWrapper(new StreamLogWrapper(output, new FlushPolicy(1024, 0, TimeUnit.MILLISECONDS, LogLevel.ASSERT)));
+		Log.i("buffered");
+		Assert.assertEquals(0, output.size());
+		Log.flush();
+		Assert.assertTrue(output.toString(StandardCharsets.UTF_8).endsWith("I: buffered" + System.lineSeparator()));
+	}
+	
+	@Test
+	public void testUnclosedWrappersAreCollected() {
+		assertCollectable(new StreamLogWrapper(new ByteArrayOutputStream()));
+		assertCollectable(new StreamLogWrapper(new ByteArrayOutputStream(), new FlushPolicy(1024, 10, TimeUnit.MILLISECONDS, LogLevel.WARN)));
+	}
+	
+	@Test
+	public void testFileLogWrapper() throws IOException {
+		File file = File.createTempFile("TestStreamLogWrapper", ".log");
+		try {
+			FileLogWrapper wrapper = new FileLogWrapper(file, new FlushPolicy(64 * 1024, 1, TimeUnit.SECONDS, LogLevel.ERROR));
+			for (int i = 0; i < 10000; i++)
+				wrapper.onLog(LogLevel.DATA, "line " + i);
+			wrapper.close();
+			List<String> lines = Files.readAllLines(file.toPath());
+			Assert.assertEquals(10000, lines.size());
+			Assert.assertEquals("line 9999", lines.get(9999));
+		} finally {
+			Assert.assertTrue(file.delete());
+		}
+	}
+	
+	private static void assertCollectable(StreamLogWrapper wrapper) {
+		wrapper.onLog(LogLevel.INFO, "unclosed");
+		WeakReference<StreamLogWrapper> reference = new WeakReference<>(wrapper);
+		wrapper = null;
+		for (int i = 0; i < 100 && reference.get() != null; i++) {
+			System.gc();
+			Delay.sleepMilli(10);
+		}
+		Assert.assertNull(reference.get());
+	}
+	
+}
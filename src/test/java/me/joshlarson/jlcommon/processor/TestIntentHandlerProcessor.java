@@ -0,0 +1,169 @@
+/***********************************************************************************
+ * MIT License                                                                     *
+ *                                                                                 *
+ * Copyright (c) 2018 Josh Larson                                                  *
+ *                                                                                 *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy    *
+ * of this software and associated documentation files (the "Software"), to deal   *
+ * in the Software without restriction, including without limitation the rights    *
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell       *
+ * copies of the Software, and to permit persons to whom the Software is           *
+ * furnished to do so, subject to the following conditions:                        *
+ *                                                                                 *
+ * The above copyright notice and this permission notice shall be included in all  *
+ * copies or substantial portions of the Software.                                 *
+ *                                                                                 *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR      *
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,        *
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE     *
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER          *
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,   *
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE   *
+ * SOFTWARE.                                                                       *
+ ***********************************************************************************/
+package me.joshlarson.jlcommon.processor;
+
+import me.joshlarson.jlcommon.control.Intent;
+import me.joshlarson.jlcommon.control.IntentMultiplexer;
+import me.joshlarson.jlcommon.control.Service;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class TestIntentHandlerProcessor {
+	
+	private static final String INTENT = "package sample;\n" +
+			"public class SampleIntent extends me.joshlarson.jlcommon.control.Intent {}\n";
+	private static final String GENERATED_SERVICE = "package sample;\n" +
+			"import me.joshlarson.jlcommon.control.*;\n" +
+			"import java.util.concurrent.atomic.AtomicInteger;\n" +
+			"public class GeneratedService extends Service {\n" +
+			"	public final AtomicInteger handled = new AtomicInteger();\n" +
+			"	public final AtomicInteger multiplexed = new AtomicInteger();\n" +
+			"	@IntentHandler\n" +
+			"	void handleSampleIntent(SampleIntent intent) { handled.incrementAndGet(); }\n" +
+			"	@IntentMultiplexer.Multiplexer\n" +
+			"	void multiplex(String prefix, Integer value) { multiplexed.addAndGet(value); }\n" +
+			"}\n";
+	private static final String REFLECTION_SERVICE = "package sample;\n" +
+			"import me.joshlarson.jlcommon.control.*;\n" +
+			"import java.util.concurrent.atomic.AtomicInteger;\n" +
+			"public class ReflectionService extends GeneratedService {\n" +
+			"	public final AtomicInteger privateHandled = new AtomicInteger();\n" +
+			"	@IntentHandler\n" +
+			"	private void handlePrivately(SampleIntent intent) { privateHandled.incrementAndGet(); }\n" +
+			"}\n";
+	private static final String HIDDEN_SERVICE = "package sample;\n" +
+			"import me.joshlarson.jlcommon.control.*;\n" +
+			"import java.util.concurrent.atomic.AtomicInteger;\n" +
+			"public class HiddenService extends Service {\n" +
+			"	public final AtomicInteger hiddenHandled = new AtomicInteger();\n" +
+			"	@IntentHandler\n" +
+			"	void handleHidden(Hidden intent) { hiddenHandled.incrementAndGet(); }\n" +
+			"	public static Intent createHidden() { return new Hidden(); }\n" +
+			"	private static class Hidden extends Intent {}\n" +
+			"}\n";
+	
+	@Test
+	public void testGeneratedRegistry() throws Exception {
+		Path output = compile(INTENT, GENERATED_SERVICE, REFLECTION_SERVICE);
+		Assert.assertTrue(Files.exists(output.resolve("sample/GeneratedService_IntentRegistry.class")));
+		Assert.assertFalse(Files.exists(output.resolve("sample/ReflectionService_IntentRegistry.class")));
+		
+		try (URLClassLoader loader = new URLClassLoader(new URL[]{output.toUri().toURL()}, getClass().getClassLoader())) {
+			Object generated = loader.loadClass("sample.GeneratedService").getConstructor().newInstance();
+			Object reflection = loader.loadClass("sample.ReflectionService").getConstructor().newInstance();
+			Object intent = loader.loadClass("sample.SampleIntent").getConstructor().newInstance();
+			
+			dispatch(generated, intent);
+			dispatch(reflection, intent);
+			Assert.assertEquals(1, getCounter(generated, "handled"));
+			Assert.assertEquals(1, getCounter(reflection, "handled"));
+			Assert.assertEquals(1, getCounter(reflection, "privateHandled"));
+			
+			IntentMultiplexer multiplexer = new IntentMultiplexer((Service) generated, String.class, Integer.class);
+			multiplexer.call("value", 5);
+			Assert.assertEquals(5, getCounter(generated, "multiplexed"));
+		}
+	}
+	
+	@Test
+	public void testInaccessibleParameterType() throws Exception {
+		Path output = compile(HIDDEN_SERVICE);
+		Assert.assertFalse(Files.exists(output.resolve("sample/HiddenService_IntentRegistry.class")));
+		
+		try (URLClassLoader loader = new URLClassLoader(new URL[]{output.toUri().toURL()}, getClass().getClassLoader())) {
+			Class<?> serviceClass = loader.loadClass("sample.HiddenService");
+			Object service = serviceClass.getConstructor().newInstance();
+			dispatch(service, serviceClass.getMethod("createHidden").invoke(null));
+			Assert.assertEquals(1, getCounter(service, "hiddenHandled"));
+		}
+	}
+	
+	private static void dispatch(Object service, Object intent) throws ReflectiveOperationException {
+		Method dispatch = Service.class.getDeclaredMethod("dispatchIntent", Intent.class);
+		dispatch.setAccessible(true);
+		dispatch.invoke(service, intent);
+	}
+	
+	private static int getCounter(Object service, String name) throws ReflectiveOperationException {
+		return ((AtomicInteger) service.getClass().getField(name).get(service)).get();
+	}
+	
+	private static Path compile(String ... sources) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Assert.assertNotNull("Tests must run on a JDK", compiler);
+		Path output = Files.createTempDirectory("intent-processor");
+		output.toFile().deleteOnExit();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+			fileManager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(output.toFile()));
+			fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, List.of(output.toFile()));
+			List<JavaFileObject> units = new ArrayList<>();
+			for (String source : sources)
+				units.add(new SourceFile(source));
+			DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+			List<String> options = List.of("-classpath", System.getProperty("java.class.path"));
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, units);
+			task.setProcessors(List.of(new IntentHandlerProcessor()));
+			Assert.assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+		}
+		return output;
+	}
+	
+	private static class SourceFile extends SimpleJavaFileObject {
+		
+		private final String source;
+		
+		public SourceFile(String source) {
+			super(URI.create("string:///" + getClassName(source).replace('.', '/') + ".java"), Kind.SOURCE);
+			this.source = source;
+		}
+		
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return source;
+		}
+		
+		private static String getClassName(String source) {
+			String className = source.substring(source.indexOf("public class ") + 13);
+			return "sample." + className.substring(0, className.indexOf(' '));
+		}
+		
+	}
+	
+}